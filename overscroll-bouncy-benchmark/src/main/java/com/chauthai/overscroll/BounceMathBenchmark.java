@@ -0,0 +1,111 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The resistance and threshold math of {@link BounceMath}, as the controller runs it: the
+ * drag over the gap on every touch event, and the limits of a fling reaching the edge.
+ * The inputs go through a table of random values, so that nothing is folded away.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BounceMathBenchmark {
+    private static final int INPUT_COUNT = 1024; // power of 2
+
+    /**
+     * The default gap limit at xxhdpi, in pixels.
+     */
+    private static final int GAP_LIMIT = 660;
+
+    private final float[] mDistances = new float[INPUT_COUNT];
+    private final int[] mVisible = new int[INPUT_COUNT];
+    private final double[] mSpeeds = new double[INPUT_COUNT];
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            mDistances[i] = (random.nextFloat() - 0.5f) * 80; // px per touch event
+            mVisible[i] = random.nextInt(GAP_LIMIT + 1);
+            mSpeeds[i] = random.nextDouble() * 15; // px per ms
+        }
+    }
+
+    /**
+     * The distance scrolled by a touch event while the gap is visible.
+     */
+    @Benchmark
+    public float dampDrag() {
+        final int i = next();
+        return BounceMath.dampDrag(mDistances[i], mVisible[i], GAP_LIMIT);
+    }
+
+    /**
+     * The scroll speed of a finger released over the gap.
+     */
+    @Benchmark
+    public double dampSpeed() {
+        final int i = next();
+        return BounceMath.dampSpeed(mSpeeds[i], mVisible[i], GAP_LIMIT);
+    }
+
+    /**
+     * The furthest a fling may go past the edge, then the velocity handed to the spring.
+     */
+    @Benchmark
+    public double handOff() {
+        final int i = next();
+        final BouncyConfig config = BouncyConfig.DEFAULT;
+
+        final int maxOverScroll = BounceMath.maxOverScroll(mSpeeds[i] / 3, GAP_LIMIT,
+                config.getSpeedFactor());
+        return BounceMath.handOffVelocity(mSpeeds[i], mVisible[i], maxOverScroll, config.getTension());
+    }
+
+    private int next() {
+        mIndex = (mIndex + 1) & (INPUT_COUNT - 1);
+        return mIndex;
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BouncyConfig.Builder#build()}, with the defaults and with every parameter set, as on
+ * a configuration change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BouncyConfigBenchmark {
+    // not constants, so that the builder is not folded away
+    private int mGapLimit = 120;
+    private double mSpeedFactor = 3;
+    private int mTension = 800;
+    private int mFriction = 60;
+
+    @Benchmark
+    public BouncyConfig buildDefault() {
+        return new BouncyConfig.Builder().build();
+    }
+
+    @Benchmark
+    public BouncyConfig buildCustom() {
+        return new BouncyConfig.Builder()
+                .setGapLimit(mGapLimit)
+                .setSpeedFactor(mSpeedFactor)
+                .setTension(mTension)
+                .setFriction(mFriction)
+                .setViewCountEstimateSize(5)
+                .setMaxAdapterSizeToEstimate(Integer.MAX_VALUE)
+                .setPhysics(BouncyConfig.PHYSICS_TRAJECTORY_CACHE)
+                .setBounceMode(BouncyConfig.BOUNCE_MODE_TRANSLATION)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.facebook.rebound.SteppingLooper;
+
+/**
+ * The Rebound spring which {@link DampedSpring} replaced, behind {@link SpringSolver} so that
+ * both are stepped the same way. Rebound integrates in steps of 1 ms and interpolates
+ * between them, so its cost grows with the time evaluated.
+ */
+class ReboundSpring implements SpringSolver {
+    private final BaseSpringSystem mSystem = new BaseSpringSystem(new SteppingLooper());
+    private final Spring mSpring;
+
+    /**
+     * Time the spring has been advanced to, in seconds since the start.
+     */
+    private double mTime = 0;
+
+    ReboundSpring(double tension, double friction) {
+        mSpring = mSystem.createSpring().setSpringConfig(new SpringConfig(tension, friction));
+    }
+
+    @Override
+    public void start(double position, double velocity) {
+        mSpring.setCurrentValue(position)
+                .setVelocity(velocity)
+                .setEndValue(0);
+        mTime = 0;
+    }
+
+    @Override
+    public void evaluate(double time) {
+        if (time > mTime) {
+            mSystem.loop((time - mTime) * 1000);
+            mTime = time;
+        }
+    }
+
+    @Override
+    public void setAtRest() {
+        mSpring.setAtRest();
+    }
+
+    @Override
+    public boolean isAtRest() {
+        return mSpring.isAtRest();
+    }
+
+    @Override
+    public double getPosition() {
+        return mSpring.getCurrentValue();
+    }
+
+    @Override
+    public double getVelocity() {
+        return mSpring.getVelocity();
+    }
+}
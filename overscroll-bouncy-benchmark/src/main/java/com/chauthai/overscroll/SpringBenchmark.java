@@ -0,0 +1,118 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The spring engines stepped the way {@link SpringScroller#doFrame(long, long)} steps them:
+ * evaluated at the time of each 60 Hz frame since the start, the position rounded to pixels.
+ * SpringScroller itself needs the Choreographer of a device, its solvers do not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpringBenchmark {
+    private static final double FRAME_INTERVAL = 1.0 / 60; // s
+
+    /**
+     * A fling handed to the spring at the edge, see {@link BounceMath#handOffVelocity}.
+     */
+    private static final double START_POSITION = 120;
+    private static final double START_VELOCITY = 2500;
+
+    @Param({"spring", "trajectoryCache", "rebound"})
+    public String engine;
+
+    private SpringSolver mSpring;
+    private int mFrame = 0;
+
+    @Setup
+    public void setUp() {
+        final double tension = BouncyConfig.DEFAULT.getTension();
+        final double friction = BouncyConfig.DEFAULT.getFriction();
+
+        if ("spring".equals(engine)) {
+            mSpring = new DampedSpring(tension, friction);
+        } else if ("trajectoryCache".equals(engine)) {
+            mSpring = new TrajectorySpring(tension, friction);
+        } else if ("rebound".equals(engine)) {
+            mSpring = new ReboundSpring(tension, friction);
+        } else {
+            throw new IllegalArgumentException("unknown engine: " + engine);
+        }
+
+        mSpring.start(START_POSITION, START_VELOCITY);
+    }
+
+    /**
+     * A whole scroll back, from the start of the spring until it is at rest.
+     * @return the sum of the positions drawn.
+     */
+    @Benchmark
+    public int scrollBack() {
+        mSpring.start(START_POSITION, START_VELOCITY);
+
+        int sum = 0;
+        int frame = 0;
+        while (!mSpring.isAtRest()) {
+            frame++;
+            mSpring.evaluate(frame * FRAME_INTERVAL);
+            sum += (int) Math.round(mSpring.getPosition());
+        }
+        return sum;
+    }
+
+    /**
+     * A single frame of a moving spring, which is started again once at rest.
+     * @return the position drawn.
+     */
+    @Benchmark
+    public int frame() {
+        if (mSpring.isAtRest()) {
+            mSpring.start(START_POSITION, START_VELOCITY);
+            mFrame = 0;
+        }
+
+        mFrame++;
+        mSpring.evaluate(mFrame * FRAME_INTERVAL);
+        return (int) Math.round(mSpring.getPosition());
+    }
+}
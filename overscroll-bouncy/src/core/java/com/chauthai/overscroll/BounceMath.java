@@ -0,0 +1,82 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+
+package com.chauthai.overscroll;
+
+/**
+ * The resistance and threshold math of the over-scroll. It has no Android dependency and
+ * does not allocate, so it can be measured on a plain JVM.
+ */
+final class BounceMath {
+
+    private BounceMath() {
+    }
+
+    /**
+     * The drag is damped in proportion to the visible part of the gap, down to nothing at
+     * the gap limit.
+     * @param distance distance moved by the finger.
+     * @param visible current visible size of the gap.
+     * @return the distance to scroll, with the sign of distance.
+     */
+    static float dampDrag(float distance, int visible, int gapLimit) {
+        return (float) (distance * resistance(visible, gapLimit));
+    }
+
+    /**
+     * The scroll speed produced by a finger moving at the given velocity while the gap is
+     * visible, damped the same way as {@link #dampDrag(float, int, int)}.
+     */
+    static double dampSpeed(double velocity, int visible, int gapLimit) {
+        return velocity * resistance(visible, gapLimit);
+    }
+
+    /**
+     * The furthest the content may travel past the edge for a given speed, the higher the
+     * speed factor the shorter.
+     * @param speedDp dp per ms, toward the edge.
+     * @return pixels
+     */
+    static int maxOverScroll(double speedDp, int gapLimit, double speedFactor) {
+        return (int) Math.min(gapLimit / speedFactor * speedDp, gapLimit);
+    }
+
+    /**
+     * The initial velocity of a spring taking over a content moving past the edge, capped
+     * so that the content stays within maxOverScroll. The peak of a damped spring is below
+     * visible + velocity / omega.
+     * @param outwardSpeed px per ms, away from the edge.
+     * @return px per second.
+     */
+    static double handOffVelocity(double outwardSpeed, int visible, int maxOverScroll, double tension) {
+        final double omega = Math.sqrt(Math.max(tension, 0));
+        final double maxVelocity = Math.max(maxOverScroll - visible, 0) * omega;
+        return Math.min(Math.max(outwardSpeed, 0) * 1000, maxVelocity);
+    }
+
+    private static double resistance(int visible, int gapLimit) {
+        return 1 - Math.min(1.0, (double) visible / gapLimit);
+    }
+}
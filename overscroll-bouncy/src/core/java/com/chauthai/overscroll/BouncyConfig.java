@@ -34,6 +34,33 @@ public class BouncyConfig {
     private static final int DEF_MAX_ADAPTER_SIZE_TO_ESTIMATE = 20;
     private static final int DEF_TENSION = 1000;
     private static final int DEF_FRICTION = 200;
+    private static final int DEF_PHYSICS = 0;
+    private static final int DEF_BOUNCE_MODE = 0;
+
+    /**
+     * Solve the spring equation on every frame.
+     */
+    public static final int PHYSICS_SPRING = 0;
+
+    /**
+     * Read the spring positions from precomputed trajectories shared by all the lists
+     * with the same tension and friction.
+     */
+    public static final int PHYSICS_TRAJECTORY_CACHE = 1;
+
+    /**
+     * Over-scroll by scrolling transparent gap items into view.
+     */
+    public static final int BOUNCE_MODE_GAP = 0;
+
+    /**
+     * Over-scroll by translating the content of the list at its edges, without any layout pass.
+     * The adapter is not wrapped, so no gap item is added to it. The children are translated
+     * with {@code View.setTranslationY()}, or X for a horizontal list, so the item decorations
+     * follow them only if they take the translation into account, as they already must for
+     * the item animations.
+     */
+    public static final int BOUNCE_MODE_TRANSLATION = 1;
 
     /**
      * The maximum over-scroll gap size (in dp).
@@ -59,18 +86,32 @@ public class BouncyConfig {
     protected final int friction;
 
     /**
-     * The number of children views to estimate the content size of RecyclerView (or ListView).
+     * The number of children views to estimate the content size of ListView.
      * The estimation is computed by averaging the children views size then multiply by the
-     * total items inside the adapter.
+     * total items inside the adapter. RecyclerView keeps an index of every measured item
+     * instead, so it does not use this value.
      */
     protected final int viewCountEstimateSize;
 
     /**
      * The maximum adapter size (number of items in the adapter) that the system will include
      * content size estimation of the RecyclerView (or ListView) in the calculation.
+     * The estimation of RecyclerView is incremental and costs O(1), so it can be enabled
+     * for any adapter size with {@link Integer#MAX_VALUE}.
      */
     protected final int maxAdapterSizeToEstimate;
 
+    /**
+     * The physics engine of the scroll-back animation, {@link #PHYSICS_SPRING} or
+     * {@link #PHYSICS_TRAJECTORY_CACHE}.
+     */
+    protected final int physics;
+
+    /**
+     * How the over-scroll is drawn, {@link #BOUNCE_MODE_GAP} or {@link #BOUNCE_MODE_TRANSLATION}.
+     */
+    protected final int bounceMode;
+
     public static final BouncyConfig DEFAULT = new Builder().build();
 
     private BouncyConfig(
@@ -79,7 +120,9 @@ public class BouncyConfig {
             int viewCountToEstimateSize,
             int maxAdapterSizeToEstimate,
             int friction,
-            int tension)
+            int tension,
+            int physics,
+            int bounceMode)
     {
         this.gapLimit = gapLimit;
         this.speedFactor = speedFactor;
@@ -87,6 +130,8 @@ public class BouncyConfig {
         this.maxAdapterSizeToEstimate = maxAdapterSizeToEstimate;
         this.friction = friction;
         this.tension = tension;
+        this.physics = physics;
+        this.bounceMode = bounceMode;
     }
 
     public int getGapLimit() {
@@ -113,6 +158,14 @@ public class BouncyConfig {
         return maxAdapterSizeToEstimate;
     }
 
+    public int getPhysics() {
+        return physics;
+    }
+
+    public int getBounceMode() {
+        return bounceMode;
+    }
+
     @Override
     public String toString() {
         return "BouncyConfig{" +
@@ -122,6 +175,8 @@ public class BouncyConfig {
                 ", friction=" + friction +
                 ", viewCountEstimateSize=" + viewCountEstimateSize +
                 ", maxAdapterSizeToEstimate=" + maxAdapterSizeToEstimate +
+                ", physics=" + physics +
+                ", bounceMode=" + bounceMode +
                 '}';
     }
 
@@ -132,6 +187,8 @@ public class BouncyConfig {
         private int nestedFriction = DEF_FRICTION;
         private int nestedViewCountEstimateSize = DEF_VIEW_COUNT_ESTIMATE_SIZE;
         private int nestedMaxAdapterSizeToEstimate = DEF_MAX_ADAPTER_SIZE_TO_ESTIMATE;
+        private int nestedPhysics = DEF_PHYSICS;
+        private int nestedBounceMode = DEF_BOUNCE_MODE;
 
         /**
          * @param gapLimit The maximum over-scroll gap size (in dp). The default
@@ -172,9 +229,10 @@ public class BouncyConfig {
         }
 
         /**
-         * @param count The number of children views to estimate the content size of RecyclerView (or ListView).
+         * @param count The number of children views to estimate the content size of ListView.
          * The estimation is computed by averaging the children views size then multiply by the
-         * total items inside the adapter. The default value is 5.
+         * total items inside the adapter. RecyclerView does not use this value since it keeps an
+         * index of every measured item. The default value is 5.
          */
         public Builder setViewCountEstimateSize(int count) {
             nestedViewCountEstimateSize = count;
@@ -183,14 +241,40 @@ public class BouncyConfig {
 
         /**
          * @param size The maximum adapter size (number of items in the adapter) that the system will include
-         * content size estimation of the RecyclerView (or ListView) in the calculation. The default
-         *             value is 20.
+         * content size estimation of the RecyclerView (or ListView) in the calculation. The estimation
+         * of RecyclerView costs O(1), use {@link Integer#MAX_VALUE} to enable it for any adapter size.
+         *             The default value is 20.
          */
         public Builder setMaxAdapterSizeToEstimate(int size) {
             nestedMaxAdapterSizeToEstimate = size;
             return this;
         }
 
+        /**
+         * @param physics The physics engine of the scroll-back animation. {@link #PHYSICS_SPRING}
+         * solves the spring on every frame, {@link #PHYSICS_TRAJECTORY_CACHE} reads it from
+         * trajectories shared by all the lists with the same tension and friction. The default
+         *                value is {@link #PHYSICS_SPRING}.
+         */
+        public Builder setPhysics(int physics) {
+            if (physics != PHYSICS_SPRING && physics != PHYSICS_TRAJECTORY_CACHE)
+                throw new IllegalArgumentException("unknown physics: " + physics);
+            nestedPhysics = physics;
+            return this;
+        }
+
+        /**
+         * @param bounceMode {@link #BOUNCE_MODE_GAP} scrolls transparent gap items into view,
+         * {@link #BOUNCE_MODE_TRANSLATION} translates the content at the edges so that the
+         * bounce needs no layout, bind or recycle work. The default value is {@link #BOUNCE_MODE_GAP}.
+         */
+        public Builder setBounceMode(int bounceMode) {
+            if (bounceMode != BOUNCE_MODE_GAP && bounceMode != BOUNCE_MODE_TRANSLATION)
+                throw new IllegalArgumentException("unknown bounce mode: " + bounceMode);
+            nestedBounceMode = bounceMode;
+            return this;
+        }
+
         public BouncyConfig build() {
             return new BouncyConfig(
                     nestedGapLimit,
@@ -198,7 +282,9 @@ public class BouncyConfig {
                     nestedViewCountEstimateSize,
                     nestedMaxAdapterSizeToEstimate,
                     nestedFriction,
-                    nestedTension
+                    nestedTension,
+                    nestedPhysics,
+                    nestedBounceMode
             );
         }
     }
@@ -0,0 +1,219 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+/**
+ * A damped harmonic oscillator which is solved analytically. The position and the velocity
+ * can be evaluated directly at any time after {@link #start(double, double)}, so it does not
+ * need a fixed-step integration and dropped frames cost nothing. The spring always contracts
+ * toward the value 0.
+ */
+class DampedSpring implements SpringSolver {
+    /**
+     * The spring is at rest when its speed (per second) is less than this threshold.
+     */
+    static final double REST_SPEED_THRESHOLD = 0.005;
+
+    /**
+     * The spring is at rest when its distance to 0 is less than this threshold.
+     */
+    static final double REST_DISPLACEMENT_THRESHOLD = 0.005;
+
+    private static final int MODE_OVERDAMPED = 0;
+    private static final int MODE_CRITICALLY_DAMPED = 1;
+    private static final int MODE_UNDERDAMPED = 2;
+
+    /**
+     * Relative tolerance to consider the spring critically damped.
+     */
+    private static final double CRITICAL_EPSILON = 1e-9;
+
+    private double mTension;
+    private double mFriction;
+
+    private int mMode;
+
+    /**
+     * Overdamped: the two real roots. Critically damped: the root in mRoot1.
+     * Underdamped: the decay rate in mRoot1 and the angular frequency in mRoot2.
+     */
+    private double mRoot1;
+    private double mRoot2;
+
+    private double mCoef1;
+    private double mCoef2;
+
+    private double mPosition = 0;
+    private double mVelocity = 0;
+    private boolean mAtRest = true;
+
+    DampedSpring(double tension, double friction) {
+        setConfig(tension, friction);
+    }
+
+    void setConfig(double tension, double friction) {
+        mTension = tension;
+        mFriction = friction;
+
+        final double discriminant = friction * friction - 4 * tension;
+
+        if (Math.abs(discriminant) <= CRITICAL_EPSILON * Math.max(1, friction * friction)) {
+            mMode = MODE_CRITICALLY_DAMPED;
+            mRoot1 = -friction / 2;
+            mRoot2 = mRoot1;
+        } else if (discriminant > 0) {
+            final double sqrt = Math.sqrt(discriminant);
+            mMode = MODE_OVERDAMPED;
+            mRoot1 = (-friction + sqrt) / 2;
+            mRoot2 = (-friction - sqrt) / 2;
+        } else {
+            mMode = MODE_UNDERDAMPED;
+            mRoot1 = -friction / 2;
+            mRoot2 = Math.sqrt(-discriminant) / 2;
+        }
+    }
+
+    double getTension() {
+        return mTension;
+    }
+
+    double getFriction() {
+        return mFriction;
+    }
+
+    /**
+     * Start the spring from the given state. The time of this state is 0.
+     * @param position distance to the rest position.
+     * @param velocity per second.
+     */
+    @Override
+    public void start(double position, double velocity) {
+        mPosition = position;
+        mVelocity = velocity;
+
+        switch (mMode) {
+            case MODE_OVERDAMPED:
+                mCoef1 = (velocity - mRoot2 * position) / (mRoot1 - mRoot2);
+                mCoef2 = position - mCoef1;
+                break;
+
+            case MODE_CRITICALLY_DAMPED:
+                mCoef1 = position;
+                mCoef2 = velocity - mRoot1 * position;
+                break;
+
+            case MODE_UNDERDAMPED:
+                mCoef1 = position;
+                mCoef2 = (velocity - mRoot1 * position) / mRoot2;
+                break;
+        }
+
+        mAtRest = checkAtRest();
+    }
+
+    /**
+     * Evaluate the position and the velocity of the spring. Nothing changes once the
+     * spring is at rest.
+     * @param time seconds since {@link #start(double, double)}.
+     */
+    @Override
+    public void evaluate(double time) {
+        if (mAtRest)
+            return;
+
+        solve(time);
+
+        if (checkAtRest()) {
+            if (mTension > 0) {
+                mPosition = 0;
+            }
+            mVelocity = 0;
+            mAtRest = true;
+        }
+    }
+
+    /**
+     * Compute the position and the velocity of the spring without checking if it is at rest.
+     * @param time seconds since {@link #start(double, double)}.
+     */
+    void solve(double time) {
+        switch (mMode) {
+            case MODE_OVERDAMPED: {
+                final double exp1 = Math.exp(mRoot1 * time);
+                final double exp2 = Math.exp(mRoot2 * time);
+                mPosition = mCoef1 * exp1 + mCoef2 * exp2;
+                mVelocity = mCoef1 * mRoot1 * exp1 + mCoef2 * mRoot2 * exp2;
+                break;
+            }
+
+            case MODE_CRITICALLY_DAMPED: {
+                final double exp = Math.exp(mRoot1 * time);
+                final double linear = mCoef1 + mCoef2 * time;
+                mPosition = linear * exp;
+                mVelocity = (mCoef2 + mRoot1 * linear) * exp;
+                break;
+            }
+
+            case MODE_UNDERDAMPED: {
+                final double exp = Math.exp(mRoot1 * time);
+                final double cos = Math.cos(mRoot2 * time);
+                final double sin = Math.sin(mRoot2 * time);
+                mPosition = exp * (mCoef1 * cos + mCoef2 * sin);
+                mVelocity = exp * ((mRoot1 * mCoef1 + mRoot2 * mCoef2) * cos
+                        + (mRoot1 * mCoef2 - mRoot2 * mCoef1) * sin);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Stop the spring at its current position.
+     */
+    @Override
+    public void setAtRest() {
+        mVelocity = 0;
+        mAtRest = true;
+    }
+
+    @Override
+    public boolean isAtRest() {
+        return mAtRest;
+    }
+
+    @Override
+    public double getPosition() {
+        return mPosition;
+    }
+
+    @Override
+    public double getVelocity() {
+        return mVelocity;
+    }
+
+    private boolean checkAtRest() {
+        return Math.abs(mVelocity) < REST_SPEED_THRESHOLD &&
+                (Math.abs(mPosition) <= REST_DISPLACEMENT_THRESHOLD || mTension == 0);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+/**
+ * A one-dimensional spring which contracts toward the value 0.
+ */
+interface SpringSolver {
+    /**
+     * Start the spring from the given state. The time of this state is 0.
+     * @param position distance to the rest position.
+     * @param velocity per second.
+     */
+    void start(double position, double velocity);
+
+    /**
+     * Evaluate the position and the velocity of the spring. Nothing changes once the
+     * spring is at rest.
+     * @param time seconds since {@link #start(double, double)}.
+     */
+    void evaluate(double time);
+
+    /**
+     * Stop the spring at its current position.
+     */
+    void setAtRest();
+
+    boolean isAtRest();
+
+    double getPosition();
+
+    double getVelocity();
+}
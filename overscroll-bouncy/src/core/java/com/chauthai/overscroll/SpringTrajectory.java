@@ -0,0 +1,172 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import java.util.ArrayList;
+
+/**
+ * Precomputed trajectories of a spring, shared by all the lists using the same tension and
+ * friction. Since the spring is linear, any trajectory is a combination of two normalized
+ * ones: the response to a unit displacement and the response to a unit velocity. Both are
+ * sampled into a single float table; a frame then only costs a lookup and an interpolation.
+ */
+class SpringTrajectory {
+    /**
+     * Number of samples per second.
+     */
+    private static final int SAMPLE_RATE = 240;
+
+    /**
+     * The maximum duration of the tables, in seconds.
+     */
+    private static final int MAX_DURATION = 10;
+
+    /**
+     * The tables end when the normalized responses are below these values. They are small
+     * enough for distances of a few thousand pixels and velocities of a few ten thousand
+     * pixels per second to be at rest at the end of the tables.
+     */
+    private static final double END_DISPLACEMENT_RESPONSE = 1e-6;
+    private static final double END_VELOCITY_RESPONSE = 1e-7;
+
+    /**
+     * Number of springs whose trajectories are cached, about 20 KB each at most. The least
+     * recently obtained one is evicted first, the lists using it keep their reference.
+     */
+    private static final int CACHE_SIZE = 4;
+
+    /**
+     * The cached trajectories, the most recently obtained last.
+     */
+    private static final ArrayList<SpringTrajectory> sCache = new ArrayList<SpringTrajectory>(CACHE_SIZE);
+
+    private final double mTension;
+    private final double mFriction;
+
+    /**
+     * Interleaved samples: the displacement response then the velocity response.
+     */
+    private final float[] mTable;
+    private final int mSampleCount;
+
+    /**
+     * Get the shared trajectories of a spring, computing them if they are not cached.
+     */
+    static SpringTrajectory obtain(double tension, double friction) {
+        synchronized (sCache) {
+            for (int i = 0; i < sCache.size(); i++) {
+                final SpringTrajectory trajectory = sCache.get(i);
+
+                if (trajectory.mTension == tension && trajectory.mFriction == friction) {
+                    sCache.remove(i);
+                    sCache.add(trajectory);
+                    return trajectory;
+                }
+            }
+
+            if (sCache.size() == CACHE_SIZE) {
+                sCache.remove(0);
+            }
+
+            final SpringTrajectory trajectory = new SpringTrajectory(tension, friction);
+            sCache.add(trajectory);
+            return trajectory;
+        }
+    }
+
+    private SpringTrajectory(double tension, double friction) {
+        mTension = tension;
+        mFriction = friction;
+
+        final DampedSpring displacementResponse = new DampedSpring(tension, friction);
+        final DampedSpring velocityResponse = new DampedSpring(tension, friction);
+        displacementResponse.start(1, 0);
+        velocityResponse.start(0, 1);
+
+        final int maxCount = MAX_DURATION * SAMPLE_RATE + 1;
+        final float[] table = new float[maxCount * 2];
+        int count = 0;
+
+        while (count < maxCount) {
+            final double time = (double) count / SAMPLE_RATE;
+            displacementResponse.solve(time);
+            velocityResponse.solve(time);
+
+            table[count * 2] = (float) displacementResponse.getPosition();
+            table[count * 2 + 1] = (float) velocityResponse.getPosition();
+            count++;
+
+            if (count > 1 && Math.abs(displacementResponse.getPosition()) < END_DISPLACEMENT_RESPONSE
+                    && Math.abs(velocityResponse.getPosition()) < END_VELOCITY_RESPONSE
+                    && Math.abs(displacementResponse.getVelocity()) < END_DISPLACEMENT_RESPONSE
+                    && Math.abs(velocityResponse.getVelocity()) < END_VELOCITY_RESPONSE) {
+                break;
+            }
+        }
+
+        mSampleCount = count;
+
+        if (count < maxCount) {
+            mTable = new float[count * 2];
+            System.arraycopy(table, 0, mTable, 0, count * 2);
+        } else {
+            mTable = table;
+        }
+    }
+
+    double getTension() {
+        return mTension;
+    }
+
+    /**
+     * @return the duration of the tables, in seconds.
+     */
+    double getDuration() {
+        return (double) (mSampleCount - 1) / SAMPLE_RATE;
+    }
+
+    /**
+     * Evaluate the trajectory which starts from the given state.
+     * @param time seconds since the start, must be less than {@link #getDuration()}.
+     * @param out receives the position at index 0 and the velocity at index 1.
+     */
+    void evaluate(double position, double velocity, double time, double[] out) {
+        final double index = time * SAMPLE_RATE;
+        final int i = Math.min((int) index, mSampleCount - 2);
+        final double fraction = index - i;
+
+        final int left = i * 2;
+        final int right = left + 2;
+
+        final double displacementSlope = mTable[right] - mTable[left];
+        final double velocitySlope = mTable[right + 1] - mTable[left + 1];
+
+        final double displacement = mTable[left] + displacementSlope * fraction;
+        final double velocityPart = mTable[left + 1] + velocitySlope * fraction;
+
+        out[0] = position * displacement + velocity * velocityPart;
+        out[1] = (position * displacementSlope + velocity * velocitySlope) * SAMPLE_RATE;
+    }
+}
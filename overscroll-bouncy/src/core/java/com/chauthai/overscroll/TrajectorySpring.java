@@ -0,0 +1,111 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+/**
+ * A spring which reads its position from the shared {@link SpringTrajectory} tables
+ * instead of solving the spring equation on every frame.
+ */
+class TrajectorySpring implements SpringSolver {
+    private final SpringTrajectory mTrajectory;
+    private final double[] mState = new double[2];
+
+    private double mStartPosition = 0;
+    private double mStartVelocity = 0;
+
+    private double mPosition = 0;
+    private double mVelocity = 0;
+    private boolean mAtRest = true;
+
+    TrajectorySpring(double tension, double friction) {
+        mTrajectory = SpringTrajectory.obtain(tension, friction);
+    }
+
+    @Override
+    public void start(double position, double velocity) {
+        mStartPosition = position;
+        mStartVelocity = velocity;
+        mPosition = position;
+        mVelocity = velocity;
+        mAtRest = checkAtRest();
+    }
+
+    @Override
+    public void evaluate(double time) {
+        if (mAtRest)
+            return;
+
+        if (time >= mTrajectory.getDuration()) {
+            mTrajectory.evaluate(mStartPosition, mStartVelocity, mTrajectory.getDuration(), mState);
+
+            if (mTrajectory.getTension() > 0) {
+                mPosition = 0;
+            } else {
+                mPosition = mState[0];
+            }
+            mVelocity = 0;
+            mAtRest = true;
+            return;
+        }
+
+        mTrajectory.evaluate(mStartPosition, mStartVelocity, time, mState);
+        mPosition = mState[0];
+        mVelocity = mState[1];
+
+        if (checkAtRest()) {
+            if (mTrajectory.getTension() > 0) {
+                mPosition = 0;
+            }
+            mVelocity = 0;
+            mAtRest = true;
+        }
+    }
+
+    @Override
+    public void setAtRest() {
+        mVelocity = 0;
+        mAtRest = true;
+    }
+
+    @Override
+    public boolean isAtRest() {
+        return mAtRest;
+    }
+
+    @Override
+    public double getPosition() {
+        return mPosition;
+    }
+
+    @Override
+    public double getVelocity() {
+        return mVelocity;
+    }
+
+    private boolean checkAtRest() {
+        return Math.abs(mVelocity) < DampedSpring.REST_SPEED_THRESHOLD &&
+                (Math.abs(mPosition) <= DampedSpring.REST_DISPLACEMENT_THRESHOLD || mTrajectory.getTension() == 0);
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+/**
+ * Estimates a velocity from the recent samples of a position, by fitting a line through
+ * the samples of the last {@link #HORIZON_NANOS} with least squares. The samples are kept in
+ * a ring buffer and nothing is allocated after construction.
+ */
+class VelocityEstimator {
+    private static final int HISTORY_SIZE = 20;
+
+    /**
+     * Only the samples within this duration before the newest one are fitted.
+     */
+    private static final long HORIZON_NANOS = 100 * 1000000L;
+
+    /**
+     * If no sample arrives for this duration, the history is dropped and the velocity is the
+     * average one over the gap: zero if the movement has stopped, and about the same as before
+     * if a janky frame has only delayed the sample.
+     */
+    private static final long ASSUME_STOPPED_NANOS = 40 * 1000000L;
+
+    /**
+     * The fitted samples must span at least this duration, otherwise the previous estimate
+     * is kept.
+     */
+    private static final long MIN_SPAN_NANOS = 1000000L;
+
+    private final long[] mTimes = new long[HISTORY_SIZE];
+    private final double[] mPositions = new double[HISTORY_SIZE];
+
+    private int mNewest = -1;
+    private int mCount = 0;
+
+    /**
+     * Sum of the deltas given to {@link #addDelta(long, double)}.
+     */
+    private double mAccumulated = 0;
+
+    /**
+     * Last velocity estimated from enough samples, in pixels per ms.
+     */
+    private double mVelocity = 0;
+
+    void clear() {
+        mNewest = -1;
+        mCount = 0;
+        mAccumulated = 0;
+        mVelocity = 0;
+    }
+
+    /**
+     * Drop the samples and start from a known velocity, which is returned until new samples
+     * span enough time.
+     * @param velocity in pixels per ms.
+     */
+    void reset(double velocity) {
+        clear();
+        mVelocity = velocity;
+    }
+
+    /**
+     * Add a sample of an absolute position.
+     * @param timeNanos monotonic timestamp of the sample.
+     * @param position in pixels.
+     */
+    void addPosition(long timeNanos, double position) {
+        if (mCount > 0) {
+            final long newestTime = mTimes[mNewest];
+
+            if (timeNanos - newestTime > ASSUME_STOPPED_NANOS) {
+                mVelocity = (position - mPositions[mNewest]) * 1000000.0 / (timeNanos - newestTime);
+                mCount = 0;
+            } else if (timeNanos <= newestTime) {
+                // same timestamp, keep the latest position only
+                mPositions[mNewest] = position;
+                return;
+            }
+        }
+
+        mNewest = (mNewest + 1) % HISTORY_SIZE;
+        mTimes[mNewest] = timeNanos;
+        mPositions[mNewest] = position;
+        mCount = Math.min(mCount + 1, HISTORY_SIZE);
+    }
+
+    /**
+     * Add a sample of a relative movement, such as the dx / dy of a scroll callback.
+     * @param timeNanos monotonic timestamp of the sample.
+     * @param delta in pixels.
+     */
+    void addDelta(long timeNanos, double delta) {
+        mAccumulated += delta;
+        addPosition(timeNanos, mAccumulated);
+    }
+
+    boolean hasSamples() {
+        return mCount > 0;
+    }
+
+    /**
+     * @return the velocity at the newest sample, in pixels per ms.
+     */
+    double getVelocity() {
+        if (mCount < 2)
+            return mVelocity;
+
+        final long newestTime = mTimes[mNewest];
+        final double newestPosition = mPositions[mNewest];
+
+        double sumT = 0, sumX = 0, sumTT = 0, sumTX = 0;
+        int n = 0;
+        long span = 0;
+
+        for (int i = 0, index = mNewest; i < mCount; i++) {
+            final long age = newestTime - mTimes[index];
+            if (age > HORIZON_NANOS)
+                break;
+
+            // relative to the newest sample to keep the sums small
+            final double t = -age / 1000000.0;
+            final double x = mPositions[index] - newestPosition;
+
+            sumT += t;
+            sumX += x;
+            sumTT += t * t;
+            sumTX += t * x;
+            n++;
+            span = age;
+
+            index = (index == 0)? HISTORY_SIZE - 1 : index - 1;
+        }
+
+        final double denominator = n * sumTT - sumT * sumT;
+
+        if (n >= 2 && span >= MIN_SPAN_NANOS && denominator > 0) {
+            mVelocity = (n * sumTX - sumT * sumX) / denominator;
+        }
+
+        return mVelocity;
+    }
+}
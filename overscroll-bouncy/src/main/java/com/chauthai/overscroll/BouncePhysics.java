@@ -0,0 +1,68 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+/**
+ * The physics engine which animates the scroll-back of an over-scrolled list. The engine is
+ * selected with {@link BouncyConfig.Builder#setPhysics(int)}.
+ */
+interface BouncePhysics {
+
+    interface Listener {
+        void onSpringUpdate(int currX, int currY);
+        void onSpringAtRest();
+    }
+
+    /**
+     * Set vertical and horizontal distances. It will scroll back to 0.
+     */
+    void startScroll(int distanceX, int distanceY);
+
+    /**
+     * Set vertical and horizontal distances and their velocities (per second). It will
+     * scroll back to 0.
+     */
+    void startScroll(int distanceX, int distanceY, float velocityX, float velocityY);
+
+    void stopScroll();
+
+    /**
+     * Change the parameters of the springs. A moving spring keeps its current position and
+     * velocity and continues with the new parameters.
+     * @param physics {@link BouncyConfig#PHYSICS_SPRING} or {@link BouncyConfig#PHYSICS_TRAJECTORY_CACHE}.
+     */
+    void setConfig(double tension, double friction, int physics);
+
+    boolean isAtRest();
+
+    int getCurrX();
+
+    int getCurrY();
+
+    /**
+     * Release the resources held by the engine. It can still be used afterward.
+     */
+    void release();
+}
@@ -25,144 +25,157 @@
 package com.chauthai.overscroll;
 
 import android.content.Context;
-import android.content.res.Resources;
-import android.graphics.PointF;
 import android.graphics.Rect;
-import android.os.Handler;
-import android.os.Looper;
-import android.os.SystemClock;
-import android.support.v4.view.GestureDetectorCompat;
-import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.DisplayMetrics;
-import android.view.GestureDetector;
-import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An adapter class which wraps the original {@link android.support.v7.widget.RecyclerView.Adapter}
- * adapter to create the over-scroll bouncy effect.
+ * adapter and inserts the gap views used by {@link BouncyConfig#BOUNCE_MODE_GAP}. The gap views
+ * are moved by a {@link BouncyController}.
  */
-class BouncyAdapter extends RecyclerView.Adapter implements SpringScroller.SpringScrollerListener {
+class BouncyAdapter extends RecyclerView.Adapter {
     /**
      * The actual gap size (in dp). Not all portion of the gap will be visible.
      * The maximum visible size is defined in {@link BouncyConfig#gapLimit}
      */
     private static final int GAP_SIZE = 1000; // dp
 
-    private static final int VIEW_TYPE_HEADER = 1111;
-    private static final int VIEW_TYPE_FOOTER = 2222;
-
-    private final BouncyConfig mConfig;
-    private final int mGapLimitPx;
-
-    private Context mContext;
-    private final RecyclerView mRecyclerView;
-    private final RecyclerView.Adapter mAdapter;
-    private final LinearLayoutManager mLayoutManager;
-
-    private final View mFooterView;
-    private final View mHeaderView;
-
-    private final DecelerateSmoothScroller mScroller;
-    private final SpringScroller mSpringScroller;
-
-    private final Handler mHandlerUI = new Handler(Looper.getMainLooper());
-
-    private long mPrevTime = SystemClock.elapsedRealtime();
-    private double mScrollSpeed = 0;
-    private int mPrevFooterVisible = 0;
-
     /**
-     * True if the RecyclerView is scrolling back after over-scrolled.
+     * View type of the header and footer gaps, far from the types usually used by adapters.
+     * The wrapped adapter must not use it.
      */
-    private boolean mIsScrollBack = false;
+    private static final int VIEW_TYPE_GAP = Integer.MIN_VALUE + 0x0B0C;
 
     /**
-     * The minimum over-scrolled distance that will trigger the scroll back.
+     * Stable ids of the gap views, far from the ids usually used by adapters.
      */
-    private int minDistanceToScrollBack = 1;
+    private static final long ITEM_ID_HEADER = Long.MIN_VALUE;
+    private static final long ITEM_ID_FOOTER = Long.MIN_VALUE + 1;
 
-    /**
-     * True if the SpringScroller will affect the RecyclerView.
-     */
-    private boolean mShouldUseSpring = false;
+    private final Context mContext;
+    private final RecyclerView mRecyclerView;
+    private final LayoutManagerHelper mLayout;
+    private final BouncyController mController;
+    private RecyclerView.Adapter mAdapter;
 
     /**
-     * True if {@link #scrollBy(int)} is used for the first time when the user
-     * uses finger to over scroll the list.
+     * The adapter which replaces {@link #mAdapter} once the RecyclerView attaches this
+     * adapter again, see {@link #setAdapter(RecyclerView.Adapter)}.
      */
-    private boolean mFirstScrollBy = false;
+    private RecyclerView.Adapter mPendingAdapter;
 
     /**
-     * True if {@link GestureDetectorCompat#onTouchEvent(MotionEvent)} is called
-     * in onInterceptTouchEvent().
+     * Sizes of the measured items, used to estimate the content size.
      */
-    private boolean mGestureOnIntercept = true;
+    private final ItemSizeIndex mItemSizes = new ItemSizeIndex();
+    private final ArrayList<View> mUnmeasuredChildren = new ArrayList<View>();
 
     /**
-     * True if the RecyclerView is over-scrolled and the user flings back
-     * (the opposite direction).
+     * The lookup installed on a {@link GridLayoutManager}, null if there is none.
      */
-    private boolean mFlingOverScrollBack = false;  // fling back while over scrolled.
+    private GapSpanSizeLookup mSpanSizeLookup;
+    private final Rect mTmpRect = new Rect();
 
     /**
-     * True if the spring is updated the first time after {@link #startSpringScroll(int)}.
-     * It is used to discard the first spring value. Sometimes the first spring value is
-     * not correct.
+     * {@link #GAP_SIZE} in pixels, updated when the adapter is attached.
      */
-    private boolean isSpringFirstValue = true;
+    private int mGapSize;
 
     public BouncyAdapter(Context context, RecyclerView recyclerView,
-                          RecyclerView.Adapter adapter,  BouncyConfig config) {
+                         RecyclerView.Adapter adapter, BouncyController controller) {
         if (recyclerView == null)
             throw new RuntimeException("null RecyclerView");
 
         if (adapter == null)
             throw new RuntimeException(("null adapter"));
 
-        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager))
-            throw new RuntimeException("RecyclerView must use LinearLayoutManager");
+        if (controller == null)
+            throw new RuntimeException("null controller");
+
+        if (!LayoutManagerHelper.isSupported(recyclerView.getLayoutManager()))
+            throw new RuntimeException("RecyclerView must use LinearLayoutManager, GridLayoutManager " +
+                    "or StaggeredGridLayoutManager");
 
         mContext = context;
         mAdapter = adapter;
         mRecyclerView = recyclerView;
-        mLayoutManager = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        mLayout = new LayoutManagerHelper(recyclerView);
+        mController = controller;
+        updateGapSize();
 
-        mConfig = config;
-        mGapLimitPx = (int) dpToPx(mConfig.gapLimit);
+        // must be set before any observer is registered
+        setHasStableIds(adapter.hasStableIds());
 
-        mFooterView = createGapView();
-        mHeaderView = createGapView();
+        registerAdapterDataObserver(mItemSizeObserver);
+        updateSpanSizeLookup();
 
-        mScroller = new DecelerateSmoothScroller(context);
-        mSpringScroller = new SpringScroller(config.tension, config.friction, this);
-
-        initRecyclerView();
+        // hide the header
+        scrollToPosition(0);
     }
 
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        if (viewType == VIEW_TYPE_HEADER)
-            return new HeaderHolder(mHeaderView);
+        // a new view every time, so the holders can be pooled and shared between lists
+        if (viewType == VIEW_TYPE_GAP)
+            return new GapHolder(createGapView());
 
-        if (viewType == VIEW_TYPE_FOOTER)
-            return new FooterHolder(mFooterView);
+        final BouncyMetrics metrics = mController.getMetrics();
+        if (metrics != null) {
+            metrics.beginSection(BouncyMetrics.SECTION_ADAPTER);
+        }
 
-        return mAdapter.onCreateViewHolder(parent, viewType);
+        try {
+            return mAdapter.onCreateViewHolder(parent, viewType);
+        } finally {
+            if (metrics != null) {
+                metrics.endSection(BouncyMetrics.SECTION_ADAPTER);
+            }
+        }
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
-        if (position != 0 && position != getItemCount() - 1) {
+        if (position == 0 || position == getItemCount() - 1) {
+            bindGapHolder(holder);
+        } else {
             mAdapter.onBindViewHolder(holder, position - 1);
         }
     }
 
+    /**
+     * The variant called by RecyclerView, measured in {@link BouncyMetrics#SECTION_ADAPTER}.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List payloads) {
+        if (position == 0 || position == getItemCount() - 1) {
+            bindGapHolder(holder);
+            return;
+        }
+
+        final BouncyMetrics metrics = mController.getMetrics();
+        if (metrics != null) {
+            metrics.beginSection(BouncyMetrics.SECTION_ADAPTER);
+        }
+
+        try {
+            mAdapter.onBindViewHolder(holder, position - 1, payloads);
+        } finally {
+            if (metrics != null) {
+                metrics.endSection(BouncyMetrics.SECTION_ADAPTER);
+            }
+        }
+    }
+
     @Override
     public int getItemCount() {
         return mAdapter.getItemCount() + 2;
@@ -170,606 +183,253 @@ class BouncyAdapter extends RecyclerView.Adapter implements SpringScroller.Sprin
 
     @Override
     public int getItemViewType(int position) {
-        if (position == 0)
-            return VIEW_TYPE_HEADER;
+        if (position == 0 || position == getItemCount() - 1)
+            return VIEW_TYPE_GAP;
 
-        if (position == getItemCount() - 1)
-            return VIEW_TYPE_FOOTER;
+        final int viewType = mAdapter.getItemViewType(position - 1);
+        if (viewType == VIEW_TYPE_GAP)
+            throw new RuntimeException("view type " + viewType + " is reserved for the gap views");
 
-        return mAdapter.getItemViewType(position - 1);
+        return viewType;
     }
 
     @Override
-    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
-        mAdapter.onAttachedToRecyclerView(recyclerView);
-    }
+    public long getItemId(int position) {
+        if (position == 0)
+            return ITEM_ID_HEADER;
 
-    @Override
-    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
-        mAdapter.onDetachedFromRecyclerView(recyclerView);
+        if (position == getItemCount() - 1)
+            return ITEM_ID_FOOTER;
+
+        return mAdapter.getItemId(position - 1);
     }
 
+    @SuppressWarnings("unchecked")
     @Override
-    public void onSpringUpdate(int currX, int currY) {
-        if (!mShouldUseSpring)
-            return;
-
-        synchronized (lockSpring) {
-            final int visibleHeader = getHeaderVisibleLength();
-            final int visibleFooter = getFooterVisibleLength();
-
-            int diff = directionVertical()? currY : currX;
-
-            if (visibleHeader > 0) {
-                diff -= visibleHeader;
-            } else {
-                diff -= visibleFooter;
-            }
-
-            if (diff < 0) {
-                // discard the first value
-                if (isSpringFirstValue) {
-                    isSpringFirstValue = false;
-                    return;
-                }
-
-                if (!mFlingOverScrollBack) {
-                    mRecyclerView.stopScroll();
-                }
-
-                if (visibleHeader > 0) {
-                    diff *= -1;
-                }
-
-                if (mLayoutManager.getReverseLayout()) {
-                    diff *= -1;
-                }
-
-                scrollBy(diff);
-            }
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        if (!isGapHolder(holder)) {
+            mAdapter.onViewRecycled(holder);
         }
     }
 
+    @SuppressWarnings("unchecked")
     @Override
-    public void onSpringAtRest() {
-        mIsScrollBack = false;
-    }
-
-    private void initRecyclerView() {
-        scrollToPosition(0);
-        initOnScrollListener();
-        initTouchListener();
-    }
-
-    private void initOnScrollListener() {
-        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
-            boolean gapAlreadyVisible = false;
-
-            @Override
-            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
-                final int deltaDist = (directionVertical()? dy : dx) * (mLayoutManager.getReverseLayout()? -1 : 1);
-
-                if (footerOccupiesWholeView()) {
-                    mPrevFooterVisible = Math.max(0, mPrevFooterVisible + deltaDist);
-                }
-
-                final int state = recyclerView.getScrollState();
-                final boolean usingScrollBy = (state == RecyclerView.SCROLL_STATE_IDLE && deltaDist != 0);
-                final boolean isDragging = (state == RecyclerView.SCROLL_STATE_DRAGGING);
-
-                computeScrollSpeed(dx, dy);
-
-                if (!isDragging && !usingScrollBy) {
-                    final int footerVisible = getFooterVisibleLength();
-                    final int headerVisible = getHeaderVisibleLength();
-
-                    final boolean scrolledBackToOtherSide = mIsScrollBack && ((deltaDist > 0 && footerVisible > 0)
-                            || (deltaDist < 0 && headerVisible > 0));
-
-                    if (scrolledBackToOtherSide) {
-                        gapAlreadyVisible = true;
-                        mIsScrollBack = false;
-                        mSpringScroller.stopScroll();
-                        minDistanceToScrollBack = getMinDistanceToScrollBack(mScrollSpeed, headerVisible, footerVisible);
-                    }
-
-                    if (footerVisible == 0 && headerVisible == 0) {
-                        gapAlreadyVisible = false;
-                        mIsScrollBack = false;
-
-                        mSpringScroller.stopScroll();
-                        minDistanceToScrollBack = 1;
-
-                    } else if (!mIsScrollBack) {
-                        if (!gapAlreadyVisible) {
-                            // check if it's already exceeded the distance to scroll back
-                            minDistanceToScrollBack = getMinDistanceToScrollBack(mScrollSpeed, headerVisible, footerVisible);
-                            gapAlreadyVisible = true;
-
-                            // scroll back
-                            if (headerVisible >= minDistanceToScrollBack || footerVisible >= minDistanceToScrollBack) {
-                                scrollBack(headerVisible, footerVisible);
-                            } else {
-                                reduceScrollSpeed(mScrollSpeed, headerVisible);
-                            }
-                        } else if (headerVisible >= minDistanceToScrollBack || footerVisible >= minDistanceToScrollBack) {
-                            scrollBack(headerVisible, footerVisible);
-                        }
-                    }
-                }
-            }
-        });
+    public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        if (isGapHolder(holder))
+            return false;
 
+        return mAdapter.onFailedToRecycleView(holder);
     }
 
-    private void initTouchListener() {
-        mRecyclerView.addOnItemTouchListener(new RecyclerView.SimpleOnItemTouchListener() {
-            @Override
-            public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
-                switch (e.getAction()) {
-                    case MotionEvent.ACTION_DOWN:
-                        mPrevTime = SystemClock.elapsedRealtime();
-                        mShouldUseSpring = false;
-
-                        mSpringScroller.stopScroll();
-                        mIsScrollBack = false;
-                        rv.stopScroll();
-                        break;
-
-                    case MotionEvent.ACTION_MOVE:
-                        break;
-
-                    case MotionEvent.ACTION_CANCEL:
-                    case MotionEvent.ACTION_UP:
-                        onActionUp();
-                        break;
-                }
-
-                mGestureOnIntercept = true;
-                mGestureDetector.onTouchEvent(e);
-
-                // return true so that RecyclerView won't scroll when the user scroll.
-                // We scroll it using scrollBy().
-                return shouldInterceptTouch();
-            }
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        if (!isGapHolder(holder)) {
+            mAdapter.onViewAttachedToWindow(holder);
+        }
+    }
 
-            @Override
-            public void onTouchEvent(RecyclerView rv, MotionEvent e) {
-                mGestureOnIntercept = false;
-                mGestureDetector.onTouchEvent(e);
-
-                switch (e.getAction()) {
-                    case MotionEvent.ACTION_UP:
-                    case MotionEvent.ACTION_CANCEL:
-                        mGestureOnIntercept = true;
-                        onActionUp();
-                        break;
-                }
-            }
-        });
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        if (!isGapHolder(holder)) {
+            mAdapter.onViewDetachedFromWindow(holder);
+        }
     }
 
-    private void onActionUp() {
-        final int footerVisible = getFooterVisibleLength();
-        final int headerVisible = getHeaderVisibleLength();
-        final boolean overScrolled = (footerVisible > 0 || headerVisible > 0);
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        // the density may have changed while the adapter was detached
+        updateGapSize();
 
-        if (overScrolled) {
-            minDistanceToScrollBack = getMinDistanceToScrollBack(mScrollSpeed, headerVisible, footerVisible);
-            boolean reduceHeaderSpeed = (headerVisible > 0) && (headerVisible < minDistanceToScrollBack);
-            boolean reduceFooterSpeed = (footerVisible > 0) && (footerVisible < minDistanceToScrollBack);
+        // the previous adapter has been detached and its views recycled, switch to the new one.
+        if (mPendingAdapter != null) {
+            mAdapter = mPendingAdapter;
+            mPendingAdapter = null;
 
-            if (reduceHeaderSpeed || reduceFooterSpeed) {
-                reduceScrollSpeed(mScrollSpeed, headerVisible);
-            } else {
-                scrollBack(headerVisible, footerVisible);
-            }
+            mItemSizes.reset();
+            mController.resetState();
         }
 
-        mShouldUseSpring = true;
+        mAdapter.onAttachedToRecyclerView(recyclerView);
     }
 
-    /**
-     * Intercepting touch event will cause the RecyclerView stop receiving scrolling event.
-     * We will need to handle scrolling by using {@link #scrollBy(int)} manually.
-     * @return true if it should intercept touch.
-     */
-    private boolean shouldInterceptTouch() {
-        final int headerVisible = getHeaderVisibleLength();
-        final int footerVisible = getFooterVisibleLength();
-
-        return headerVisible > 0 || footerVisible > 0;
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        mAdapter.onDetachedFromRecyclerView(recyclerView);
     }
 
     /**
-     * Compute current scroll speed.
-     * @param dx in {@link RecyclerView.OnScrollListener}
-     * @param dy in {@link RecyclerView.OnScrollListener}
+     * Wrap another adapter, keeping the gap views and the controller of this one. The adapter
+     * is switched when the RecyclerView attaches this adapter again through
+     * {@link RecyclerView#setAdapter(RecyclerView.Adapter)} or
+     * {@link RecyclerView#swapAdapter(RecyclerView.Adapter, boolean)}, so the previous adapter
+     * still receives its detach and recycle callbacks.
+     * @param adapter must have the same {@link #hasStableIds()} as this adapter.
      */
-    private void computeScrollSpeed(int dx, int dy) {
-        long currTime = SystemClock.elapsedRealtime();
-        int deltaDist = (directionVertical()? dy : dx);
-
-        if (mFirstScrollBy) {
-            mFirstScrollBy = false;
-            int correctedDeltaDist = deltaDist * (mLayoutManager.getReverseLayout()? -1 : 1);
-
-            if (correctedDeltaDist > 0)
-                deltaDist = getFooterVisibleLength();
-            else if (correctedDeltaDist < 0)
-                deltaDist = getHeaderVisibleLength();
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        if (adapter == null)
+            throw new RuntimeException(("null adapter"));
 
-            if (mLayoutManager.getReverseLayout()) {
-                deltaDist *= -1;
-            }
-        }
+        if (adapter.hasStableIds() != hasStableIds())
+            throw new RuntimeException("adapter must have the same stable ids setting");
 
-        mScrollSpeed = (double) deltaDist / (currTime - mPrevTime);
-        mPrevTime = currTime;
+        mPendingAdapter = adapter;
     }
 
-    private final Object lockSpring = new Object();
-
     /**
-     * Scroll back with spring mechanism.
+     * Called after the layout manager of the RecyclerView has been replaced. The gap views
+     * get their new layout params when they are bound again.
      */
-    private void scrollBack(int headerVisible, int footerVisible) {
-        synchronized (lockSpring) {
-            mIsScrollBack = true;
-            isSpringFirstValue = true;
-
-            mRecyclerView.stopScroll();
-
-            if (headerVisible > 0) {
-                startSpringScroll(headerVisible);
-            } else {
-                startSpringScroll(footerVisible);
-            }
-        }
+    void onLayoutManagerChanged() {
+        updateSpanSizeLookup();
     }
 
     /**
-     * Compute the over scroll threshold to scroll back.
-     * @param speed px per ms
-     * @return pixels
+     * Make the gap views span all the columns of a {@link GridLayoutManager}. The span size
+     * lookup of the grid is wrapped again if it has been replaced.
      */
-    private int getMinDistanceToScrollBack(double speed, int headerVisible, int footerVisible) {
-        if (mLayoutManager.getReverseLayout())
-            speed *= -1.0;
-
-        if (headerVisible > 0) {
-            if (speed >= 0)
-                return 0;
-
-            return (int) Math.min((mGapLimitPx / mConfig.speedFactor * pxToDp(-speed)), mGapLimitPx);
+    void updateSpanSizeLookup() {
+        // the grid which had the lookup has been replaced
+        if (mSpanSizeLookup != null && mSpanSizeLookup.mGrid != mLayout.getLayoutManager()) {
+            removeSpanSizeLookup();
         }
 
-        if (footerVisible == 0 || speed <= 0)
-            return 0;
-
-        return (int) Math.min((mGapLimitPx / mConfig.speedFactor * pxToDp(speed)), mGapLimitPx);
-    }
+        if (!(mLayout.getLayoutManager() instanceof GridLayoutManager))
+            return;
 
-    /**
-     * Reduce the scroll speed before scrolling back.
-     * @param speed current scroll speed.
-     * @param headerVisible current header visible size.
-     */
-    private void reduceScrollSpeed(double speed, int headerVisible) {
-        mRecyclerView.stopScroll();
-        int distToStop = minDistanceToScrollBack;
+        final GridLayoutManager grid = (GridLayoutManager) mLayout.getLayoutManager();
+        GridLayoutManager.SpanSizeLookup lookup = grid.getSpanSizeLookup();
 
-        mScroller.setScrollVector(getDecelVector(headerVisible));
-        mScroller.setTargetPosition(getDecelTargetPos(headerVisible));
+        if (lookup instanceof GapSpanSizeLookup) {
+            if (((GapSpanSizeLookup) lookup).isOwnedBy(this))
+                return;
 
-        mScroller.setDistanceToStop(distToStop);
-        mScroller.setInitialSpeed((float) Math.abs(speed));
+            // installed by a previous BouncyAdapter, do not shift the positions twice
+            lookup = ((GapSpanSizeLookup) lookup).mLookup;
+        }
 
-        mLayoutManager.startSmoothScroll(mScroller);
+        mSpanSizeLookup = new GapSpanSizeLookup(grid, lookup);
+        grid.setSpanSizeLookup(mSpanSizeLookup);
     }
 
     /**
-     * Get the deceleration vector for {@link DecelerateSmoothScroller}
+     * Give the grid its own span size lookup back, once this adapter is not installed anymore.
+     * A lookup set on the grid since then is kept.
      */
-    private PointF getDecelVector(int headerVisible) {
-        if (headerVisible > 0) {
-            if (directionVertical())
-                return new PointF(0, (!mLayoutManager.getReverseLayout()? -1 : 1));
-            else
-                return new PointF((!mLayoutManager.getReverseLayout()? -1 : 1), 0);
-        }
-
-        if (directionVertical())
-            return new PointF(0, (!mLayoutManager.getReverseLayout()? 1 : -1));
+    void removeSpanSizeLookup() {
+        if (mSpanSizeLookup == null)
+            return;
 
-        return new PointF((!mLayoutManager.getReverseLayout()? 1 : -1), 0);
+        final GridLayoutManager grid = mSpanSizeLookup.mGrid;
+        if (grid.getSpanSizeLookup() == mSpanSizeLookup) {
+            grid.setSpanSizeLookup(mSpanSizeLookup.mLookup);
+        }
+        mSpanSizeLookup = null;
     }
 
     /**
-     * Get the target position (in the BouncyAdapter) for {@link DecelerateSmoothScroller}
-     * to slow down the scroll.
-     */
-    private int getDecelTargetPos(int headerVisible) {
-        if (headerVisible > 0)
-            return 0;
-
-        return getItemCount() - 1;
-    }
-
-    private final GestureDetectorCompat mGestureDetector = new GestureDetectorCompat(mContext,
-            new GestureDetector.SimpleOnGestureListener() {
-                int scrollByCount = 0;
-
-                @Override
-                public boolean onDown(MotionEvent e) {
-                    scrollByCount = 0;
-                    mFlingOverScrollBack = false;
-                    return true;
-                }
-
-                @Override
-                public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-                    final int headerVisible = getHeaderVisibleLength();
-                    final int footerVisible = getFooterVisibleLength();
-
-                    int visible = (headerVisible > 0)? headerVisible : footerVisible;
-
-                    if (visible > 0) {
-                        scrollByCount++;
-                        mFirstScrollBy = (scrollByCount == 1);
-
-                        double ratioVisible = (double) visible / mGapLimitPx;
-                        float distance = directionVertical()? distanceY : distanceX;
-                        double scrollDist = Math.abs(distance - distance * ratioVisible);
-
-                        if (distance < 0) {
-                            scrollDist *= -1;
-                        }
-
-                        scrollBy((int) scrollDist);
-                    }
-
-                    // still in onTouchEvent, manually scroll the recycler view.
-                    else if (visible == 0 && !mGestureOnIntercept) {
-                        mRecyclerView.scrollBy((int) distanceX, (int) distanceY);
-                    }
-
-                    return true;
-                }
-
-                @Override
-                public boolean onFling(MotionEvent e1, MotionEvent e2, final float velocityX, final float velocityY) {
-                    final int headerVisible = getHeaderVisibleLength();
-                    final int footerVisible = getFooterVisibleLength();
-
-                    float deltaVel = directionVertical()? velocityY : velocityX;
-                    if (mLayoutManager.getReverseLayout())
-                        deltaVel *= -1.0;
-
-                    final boolean gapVisible = headerVisible > 0 || footerVisible > 0;
-                    final boolean isFlingOverBack = gapVisible && !mGestureOnIntercept &&
-                            ((headerVisible > 0 && deltaVel < 0) || (footerVisible > 0 && deltaVel > 0));
-
-                    // gaps are not visible, use regular fling.
-                    if (!gapVisible && !mGestureOnIntercept) {
-                        mHandlerUI.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                mRecyclerView.fling((int) -velocityX, (int) -velocityY);
-                            }
-                        });
-                    }
-
-                    // gap is visible, only fling if it's fling back.
-                    else if (isFlingOverBack) {
-                        mHandlerUI.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                mFlingOverScrollBack = true;
-                                mRecyclerView.fling((int) -velocityX, (int) -velocityY);
-                            }
-                        });
-                    }
-
-                    return true;
-                }
-            });
-
-    /**
-     * Scroll by vertically or horizontally depends on the direction of the
-     * LinearLayoutManager.
-     * @param dist in pixels.
+     * @return the header gap view, null if it is not laid out.
      */
-    private void scrollBy(int dist) {
-        if (directionVertical()) {
-            mRecyclerView.scrollBy(0, dist);
-        } else {
-            mRecyclerView.scrollBy(dist, 0);
-        }
+    View getHeaderView() {
+        return mLayout.getLayoutManager().findViewByPosition(0);
     }
 
     /**
-     * Set the spring value to start the spring scroll-back animation.
-     * The spring will contract and finish with the value 0.
-     * @param dist a positive value.
+     * @return the footer gap view, null if it is not laid out.
      */
-    private void startSpringScroll(int dist) {
-        if (directionVertical()) {
-            mSpringScroller.startScroll(0, dist);
-        } else {
-            mSpringScroller.startScroll(dist, 0);
-        }
+    View getFooterView() {
+        return mLayout.getLayoutManager().findViewByPosition(getItemCount() - 1);
     }
 
     /**
-     * @return If the content size is less than the RecyclerView's size, then return the different.
-     * Return 0 otherwise.
+     * @return number of items in the original adapter.
      */
-    private int contentSizeLessThanView() {
-        final int recyclerSize = directionVertical()? mRecyclerView.getHeight() : mRecyclerView.getWidth();
-        return Math.max(recyclerSize - estimateContentSize(), 0);
+    int getAdapterItemCount() {
+        return mAdapter.getItemCount();
     }
 
     /**
-     * Try to estimate the content size of the adapter inside the RecyclerView.
-     * @return The average size of {@link BouncyConfig#viewCountEstimateSize} views in the adapter.
+     * Estimate the content size of the adapter inside the RecyclerView from the sizes
+     * of the items measured so far.
      */
-    private int estimateContentSize() {
-        int total = 0;
-        int count = 0;
-
-        for (int i = mAdapter.getItemCount() - 1; i >= 0 && count < mConfig.viewCountEstimateSize; i--) {
-            View view = mLayoutManager.findViewByPosition(i + 1);
-
-            if (view != null) {
-                Rect rect = new Rect();
-                mLayoutManager.getDecoratedBoundsWithMargins(view, rect);
-                int itemHeight = Math.abs(directionVertical()? rect.height() : rect.width());
-
-                count++;
-                total += itemHeight;
-            }
-        }
+    int estimateContentSize() {
+        return mItemSizes.estimateContentSize(mAdapter.getItemCount()) / mLayout.getSpanCount();
+    }
 
-        if (count > 0) {
-            double average = (double) total / count;
-            return (int) (average * mAdapter.getItemCount());
-        }
+    void onChildAttached(View child) {
+        mUnmeasuredChildren.add(child);
+    }
 
-        return 0;
+    void onChildDetached(View child) {
+        mUnmeasuredChildren.remove(child);
     }
 
     /**
-     * Get the visible size of the footer view. The size is vertically or horizontally
-     * depends on the RecyclerView's direction.
-     * @return visible size in pixels, 0 if not visible.
+     * Record the sizes of all the children, after a layout pass.
      */
-    private int getFooterVisibleLength() {
-        if (footerOccupiesWholeView()) {
-            return mPrevFooterVisible;
-        }
-
-        // footer is not visible
-        if (mLayoutManager.findLastVisibleItemPosition() != getItemCount() - 1) {
-            mPrevFooterVisible = 0;
-            return 0;
+    void measureChildren() {
+        mUnmeasuredChildren.clear();
+        for (int i = 0; i < mRecyclerView.getChildCount(); i++) {
+            measureChild(mRecyclerView.getChildAt(i));
         }
-
-        int result;
-        if (directionVertical()) {
-            if (!mLayoutManager.getReverseLayout()) {
-                result = getBottomVisible(mFooterView);
-            } else {
-                result = getTopVisible(mFooterView);
-            }
-        } else {
-            if (!mLayoutManager.getReverseLayout()) {
-                result = getRightVisible(mFooterView);
-            } else {
-                result = getLeftVisible(mFooterView);
-            }
-        }
-
-        if (mAdapter.getItemCount() <= mConfig.maxAdapterSizeToEstimate) {
-            result -= contentSizeLessThanView();
-        }
-
-        result = Math.max(0, result);
-        mPrevFooterVisible = result;
-        return result;
     }
 
     /**
-     * Get the visible size of the header view. The size is vertically or horizontally
-     * depends on the RecyclerView's direction.
-     * @return visible size in pixels, 0 if not visible.
+     * Record the sizes of the children attached since the last scroll or layout pass.
      */
-    private int getHeaderVisibleLength() {
-        // header is not visible
-        if (mLayoutManager.findFirstVisibleItemPosition() != 0)
-            return 0;
-
-        if (directionVertical()) {
-            if (!mLayoutManager.getReverseLayout()) {
-                return getTopVisible(mHeaderView);
-            } else {
-                return getBottomVisible(mHeaderView);
-            }
+    void measureAttachedChildren() {
+        for (int i = 0; i < mUnmeasuredChildren.size(); i++) {
+            measureChild(mUnmeasuredChildren.get(i));
         }
+        mUnmeasuredChildren.clear();
+    }
 
-        if (!mLayoutManager.getReverseLayout()) {
-            return getLeftVisible(mHeaderView);
-        }
+    private void measureChild(View child) {
+        final int position = mRecyclerView.getChildAdapterPosition(child);
 
-        return getRightVisible(mHeaderView);
-    }
+        // not bound yet, or a gap view
+        if (position == RecyclerView.NO_POSITION || position == 0 || position == getItemCount() - 1)
+            return;
 
-    /**
-     * Get the visible size of a view to the top of the RecyclerView.
-     * @param view to be checked
-     * @return visible size in pixels, 0 if not visible.
-     */
-    private int getTopVisible(View view) {
-        return Math.max(0, view.getBottom() - mRecyclerView.getPaddingTop());
+        mLayout.getLayoutManager().getDecoratedBoundsWithMargins(child, mTmpRect);
+        mItemSizes.put(position - 1, Math.abs(directionVertical()? mTmpRect.height() : mTmpRect.width()));
     }
 
     /**
-     * Get the visible size of a view to the bottom of the RecyclerView.
-     * @param view to be checked
-     * @return visible size in pixels, 0 if not visible.
+     * Keep the item size index in sync with the positions of the adapter.
      */
-    private int getBottomVisible(View view) {
-        return Math.max(0, mRecyclerView.getHeight() - view.getTop() - mRecyclerView.getPaddingBottom());
-    }
+    private final RecyclerView.AdapterDataObserver mItemSizeObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            mItemSizes.invalidateAll();
+        }
 
-    /**
-     * Get the visible size of a view to the left of the RecyclerView.
-     * @param view to be checked
-     * @return visible size in pixels, 0 if not visible.
-     */
-    private int getLeftVisible(View view) {
-        return Math.max(0, view.getRight() - mRecyclerView.getPaddingLeft());
-    }
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mItemSizes.invalidate(positionStart - 1, itemCount);
+        }
 
-    /**
-     * Get the visible size of a view to the right of the RecyclerView.
-     * @param view to be checked
-     * @return visible size in pixels, 0 if not visible.
-     */
-    private int getRightVisible(View view) {
-        return Math.max(0, mRecyclerView.getWidth() - view.getLeft() - mRecyclerView.getPaddingRight());
-    }
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            mItemSizes.invalidate(positionStart - 1, itemCount);
+        }
 
-    /**
-     * Check if the footer view occupies the whole RecyclerView.
-     */
-    private boolean footerOccupiesWholeView() {
-        if (getItemCount() == 0)
-            return false;
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mItemSizes.invalidateAll();
+        }
 
-        final int firstX = mRecyclerView.getPaddingLeft();
-        final int firstY = mRecyclerView.getPaddingTop();
-        final int lastX = mRecyclerView.getWidth() - 1 - mRecyclerView.getPaddingRight();
-        final int lastY = mRecyclerView.getHeight() - 1 - mRecyclerView.getPaddingBottom();
-
-        if (!mLayoutManager.getReverseLayout()) {
-            if (directionVertical()) {
-                return (mRecyclerView.findChildViewUnder(firstX, firstY) == mFooterView) ||
-                        (mRecyclerView.findChildViewUnder(lastX, firstY) == mFooterView);
-            } else {
-                return (mRecyclerView.findChildViewUnder(firstX, firstY) == mFooterView) ||
-                        (mRecyclerView.findChildViewUnder(firstX, lastY) == mFooterView);
-            }
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mItemSizes.invalidateAll();
         }
 
-        if (directionVertical()) {
-            return (mRecyclerView.findChildViewUnder(firstX, lastY) == mFooterView) ||
-                    (mRecyclerView.findChildViewUnder(lastX, lastY) == mFooterView);
-        } else {
-            return (mRecyclerView.findChildViewUnder(firstX, lastY) == mFooterView) ||
-                    (mRecyclerView.findChildViewUnder(lastX, firstY) == mFooterView);
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mItemSizes.invalidateAll();
         }
-    }
+    };
 
     /**
      * @param position position in the original adapter.
@@ -787,66 +447,97 @@ class BouncyAdapter extends RecyclerView.Adapter implements SpringScroller.Sprin
      */
     private View createGapView() {
         final View view = new View(mContext);
-        final int width = directionVertical()? ViewGroup.LayoutParams.MATCH_PARENT : (int) dpToPx(GAP_SIZE);
-        final int height = directionVertical()? (int) dpToPx(GAP_SIZE) : ViewGroup.LayoutParams.MATCH_PARENT;
+        view.setLayoutParams(createGapLayoutParams());
+        return view;
+    }
 
-        final ViewGroup.LayoutParams params = new ViewGroup.LayoutParams(width, height);
+    /**
+     * A pooled gap view may come from a list with another orientation or layout manager,
+     * its layout params are only replaced if they do not fit this list.
+     */
+    private void bindGapHolder(RecyclerView.ViewHolder holder) {
+        final ViewGroup.LayoutParams params = holder.itemView.getLayoutParams();
+        final boolean staggered = mLayout.getLayoutManager() instanceof StaggeredGridLayoutManager;
 
-        if (directionVertical()) {
-            params.width = 1;
-        } else {
-            params.height = 1;
-        }
+        final boolean fits = params != null
+                && params.width == getGapWidth() && params.height == getGapHeight()
+                && (!staggered || (params instanceof StaggeredGridLayoutManager.LayoutParams
+                        && ((StaggeredGridLayoutManager.LayoutParams) params).isFullSpan()));
 
-        view.setLayoutParams(params);
+        if (!fits) {
+            holder.itemView.setLayoutParams(createGapLayoutParams());
+        }
+    }
 
-        return view;
+    private void updateGapSize() {
+        mGapSize = (int) ((double) GAP_SIZE * mContext.getResources().getDisplayMetrics().densityDpi
+                / DisplayMetrics.DENSITY_DEFAULT);
     }
 
-    private boolean directionVertical() {
-        return mLayoutManager.getOrientation() == LinearLayoutManager.VERTICAL;
+    private int getGapWidth() {
+        return directionVertical()? 1 : mGapSize;
     }
 
-    private class FooterHolder extends RecyclerView.ViewHolder {
-        public FooterHolder(View v) {
-            super(v);
-        }
+    private int getGapHeight() {
+        return directionVertical()? mGapSize : 1;
     }
 
-    private class HeaderHolder extends RecyclerView.ViewHolder {
-        public HeaderHolder(View v) {
-            super(v);
+    private ViewGroup.LayoutParams createGapLayoutParams() {
+        final int width = getGapWidth();
+        final int height = getGapHeight();
+
+        if (mLayout.getLayoutManager() instanceof StaggeredGridLayoutManager) {
+            final StaggeredGridLayoutManager.LayoutParams params =
+                    new StaggeredGridLayoutManager.LayoutParams(width, height);
+            params.setFullSpan(true);
+            return params;
         }
-    }
 
-    private double dpToPx(double dp) {
-        Resources resources = mContext.getResources();
-        DisplayMetrics metrics = resources.getDisplayMetrics();
-        return  dp * ((double) metrics.densityDpi / DisplayMetrics.DENSITY_DEFAULT);
+        return new ViewGroup.LayoutParams(width, height);
     }
 
-    private double pxToDp(double px) {
-        Resources resources = mContext.getResources();
-        DisplayMetrics metrics = resources.getDisplayMetrics();
-        return  px / ((double) metrics.densityDpi / DisplayMetrics.DENSITY_DEFAULT);
+    private boolean directionVertical() {
+        return mLayout.isVertical();
     }
 
-    private String format(double value) {
-        return String.format(Locale.US, "%1$,.2f", value);
+    private boolean isGapHolder(RecyclerView.ViewHolder holder) {
+        return holder instanceof GapHolder;
     }
 
-    private String toStringScrollState(int state) {
-        switch (state) {
-            case RecyclerView.SCROLL_STATE_DRAGGING:
-                return "dragging";
-            case RecyclerView.SCROLL_STATE_IDLE:
-                return "idle";
-            case RecyclerView.SCROLL_STATE_SETTLING:
-                return "settling";
+    /**
+     * Holder of a header or footer gap. It is static so that a holder shared through a
+     * {@link RecyclerView.RecycledViewPool} does not keep the adapter which created it.
+     */
+    private static class GapHolder extends RecyclerView.ViewHolder {
+        GapHolder(View v) {
+            super(v);
         }
-        return "";
     }
-}
 
+    /**
+     * Gives the gap views the whole span of the grid and maps the other positions to the
+     * lookup of the original adapter.
+     */
+    private class GapSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+        private final GridLayoutManager mGrid;
+        private final GridLayoutManager.SpanSizeLookup mLookup;
+
+        GapSpanSizeLookup(GridLayoutManager grid, GridLayoutManager.SpanSizeLookup lookup) {
+            mGrid = grid;
+            mLookup = lookup;
+            setSpanIndexCacheEnabled(lookup.isSpanIndexCacheEnabled());
+        }
 
+        boolean isOwnedBy(BouncyAdapter adapter) {
+            return adapter == BouncyAdapter.this;
+        }
+
+        @Override
+        public int getSpanSize(int position) {
+            if (position == 0 || position == getItemCount() - 1)
+                return mGrid.getSpanCount();
 
+            return mLookup.getSpanSize(position - 1);
+        }
+    }
+}
@@ -0,0 +1,1409 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.util.DisplayMetrics;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import java.util.Locale;
+
+/**
+ * Drives the over-scroll bouncy effect of a RecyclerView: it listens to the touch and scroll
+ * events, runs the physics and moves the over-scrolled content. In
+ * {@link BouncyConfig#BOUNCE_MODE_GAP} the content is moved by scrolling the gap views of a
+ * {@link BouncyAdapter}, in {@link BouncyConfig#BOUNCE_MODE_TRANSLATION} the adapter of the
+ * list is not wrapped and the content is translated.
+ */
+class BouncyController implements BouncePhysics.Listener {
+    private static final int TOUCH_IDLE = 0;
+    private static final int TOUCH_PENDING = 1;
+    private static final int TOUCH_DRAGGING = 2;
+
+    private BouncyConfig mConfig;
+    private int mGapLimitPx;
+
+    /**
+     * True if the over-scroll is drawn by translating the content instead of scrolling
+     * the gap views into view, see {@link BouncyConfig#BOUNCE_MODE_TRANSLATION}.
+     */
+    private final boolean mTranslationMode;
+
+    /**
+     * Over-scroll mode of the RecyclerView before this controller, restored when detached.
+     */
+    private int mOverScrollModeBefore;
+
+    /**
+     * The over-scroll of the translation mode, in pixels. Positive when the header side is
+     * over-scrolled, negative for the footer side.
+     */
+    private int mOverScrollOffset = 0;
+
+    /**
+     * The translation added to the children for {@link #mOverScrollOffset}, see
+     * {@link #updateChildTranslation()}.
+     */
+    private int mChildTranslationX = 0;
+    private int mChildTranslationY = 0;
+
+    /**
+     * The side driven by the spring in the translation mode, 1 for the header and -1 for the footer.
+     */
+    private int mSpringSide = 1;
+
+    private final RecyclerView mRecyclerView;
+
+    /**
+     * The adapter which provides the gap views, null in the translation mode.
+     */
+    private BouncyAdapter mGapAdapter;
+
+    private RecyclerView.OnScrollListener mOnScrollListener;
+    private RecyclerView.OnItemTouchListener mOnItemTouchListener;
+    private RecyclerView.OnChildAttachStateChangeListener mChildAttachListener;
+    private final LayoutManagerHelper mLayout;
+
+    /**
+     * Created on the first edge contact by {@link #getPhysics()} and dropped by {@link #release()},
+     * so the lists which are never over-scrolled, or are off screen, hold no spring.
+     */
+    private BouncePhysics mPhysics;
+
+    /**
+     * Velocity of the content, fed by the scroll callbacks, and velocity of the finger, fed by
+     * the touch events including their historical samples.
+     */
+    private final VelocityEstimator mScrollVelocity = new VelocityEstimator();
+    private final VelocityEstimator mTouchVelocity = new VelocityEstimator();
+
+    /**
+     * Current scroll speed in pixels per ms, positive when the scroll offset increases.
+     */
+    private double mScrollSpeed = 0;
+    private int mPrevFooterVisible = 0;
+
+    /**
+     * True if the RecyclerView is scrolling back after over-scrolled.
+     */
+    private boolean mIsScrollBack = false;
+
+    /**
+     * True if the physics engine will affect the RecyclerView.
+     */
+    private boolean mShouldUseSpring = false;
+
+    /**
+     * State of the touch gesture, {@link #TOUCH_IDLE}, {@link #TOUCH_PENDING} until the finger
+     * has moved past the touch slop, then {@link #TOUCH_DRAGGING}.
+     */
+    private int mTouchState = TOUCH_IDLE;
+    private int mActivePointerId = 0;
+    private float mLastTouchX = 0;
+    private float mLastTouchY = 0;
+    private final int mTouchSlop;
+
+    /**
+     * True if the RecyclerView is over-scrolled and the user flings back
+     * (the opposite direction).
+     */
+    private boolean mFlingOverScrollBack = false;  // fling back while over scrolled.
+
+    /**
+     * True if the spring is updated the first time after {@link #startSpringScroll(int)}.
+     * It is used to discard the first spring value. Sometimes the first spring value is
+     * not correct.
+     */
+    private boolean isSpringFirstValue = true;
+
+    /**
+     * Edge geometry memoized for the current layout or scroll pass. The values are
+     * computed lazily and dropped by {@link #invalidateEdges()}.
+     */
+    private boolean mHeaderVisibleValid = false;
+    private boolean mFooterVisibleValid = false;
+    private boolean mFooterOccupiesValid = false;
+    private int mHeaderVisible = 0;
+    private int mFooterVisible = 0;
+    private boolean mFooterOccupies = false;
+    private boolean mVisibleRangeValid = false;
+    private int mFirstVisible = RecyclerView.NO_POSITION;
+    private int mLastVisible = RecyclerView.NO_POSITION;
+
+    /**
+     * Approaching edge callback, see {@link #setOnApproachEdgeListener}. An edge fires once
+     * when it comes within the lead and is armed again when the list moves away from it.
+     */
+    private RecyclerViewBouncy.OnApproachEdgeListener mApproachListener;
+    private int mApproachLeadItems = -1;
+    private int mApproachLeadPixels = -1;
+    private boolean mApproachingStart = false;
+    private boolean mApproachingEnd = false;
+
+    /**
+     * densityDpi / DENSITY_DEFAULT, read once instead of on every conversion.
+     */
+    private final double mDensityScale;
+
+    /**
+     * Null unless the metrics are enabled.
+     */
+    private BouncyMetrics mMetrics;
+    private BouncyRecorder mRecorder;
+
+    public BouncyController(Context context, RecyclerView recyclerView, BouncyConfig config) {
+        if (recyclerView == null)
+            throw new RuntimeException("null RecyclerView");
+
+        if (!LayoutManagerHelper.isSupported(recyclerView.getLayoutManager()))
+            throw new RuntimeException("RecyclerView must use LinearLayoutManager, GridLayoutManager " +
+                    "or StaggeredGridLayoutManager");
+
+        mDensityScale = (double) context.getResources().getDisplayMetrics().densityDpi
+                / DisplayMetrics.DENSITY_DEFAULT;
+        mRecyclerView = recyclerView;
+        mLayout = new LayoutManagerHelper(recyclerView);
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        mConfig = config;
+        mGapLimitPx = (int) dpToPx(mConfig.gapLimit);
+        mTranslationMode = (mConfig.bounceMode == BouncyConfig.BOUNCE_MODE_TRANSLATION);
+
+        initRecyclerView();
+    }
+
+    /**
+     * Called after the layout manager of the RecyclerView has been replaced. The spring is
+     * dropped since the orientation may have changed.
+     */
+    public void onLayoutManagerChanged() {
+        if (!LayoutManagerHelper.isSupported(mRecyclerView.getLayoutManager()))
+            throw new RuntimeException("RecyclerView must use LinearLayoutManager, GridLayoutManager " +
+                    "or StaggeredGridLayoutManager");
+
+        resetState();
+    }
+
+    /**
+     * Apply a new configuration with the same bounce mode. The gap limit and the speed factor
+     * apply from the next event, a moving spring continues from its current position and
+     * velocity with the new tension and friction.
+     */
+    public void setConfig(BouncyConfig config) {
+        if (config.bounceMode != mConfig.bounceMode)
+            throw new IllegalArgumentException("the bounce mode of a controller cannot change");
+
+        mConfig = config;
+        mGapLimitPx = (int) dpToPx(config.gapLimit);
+
+        if (mPhysics != null) {
+            mPhysics.setConfig(config.tension, config.friction, config.physics);
+        }
+    }
+
+    /**
+     * Called when the RecyclerView starts a fling, with its own velocity. The velocity is
+     * exact, so it replaces the estimation of the scroll speed until the fling has produced
+     * enough samples.
+     * @param velocityX pixels per second.
+     * @param velocityY pixels per second.
+     */
+    public void onFling(int velocityX, int velocityY) {
+        mScrollVelocity.reset((directionVertical()? velocityY : velocityX) / 1000.0);
+        mScrollSpeed = mScrollVelocity.getVelocity();
+    }
+
+    /**
+     * @return the metrics of the over-scroll episodes, null if they are disabled.
+     */
+    BouncyMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Set the adapter which provides the gap views in the gap mode.
+     */
+    public void setGapAdapter(BouncyAdapter gapAdapter) {
+        mGapAdapter = gapAdapter;
+        invalidateEdges();
+    }
+
+    /**
+     * @param metrics null to disable the metrics.
+     */
+    public void setMetrics(BouncyMetrics metrics) {
+        if (mMetrics != null) {
+            mMetrics.cancelEpisode();
+        }
+        mMetrics = metrics;
+    }
+
+    /**
+     * @param recorder null to stop recording.
+     */
+    public void setRecorder(BouncyRecorder recorder) {
+        mRecorder = recorder;
+    }
+
+    /**
+     * @return the horizontal translation of the content in the translation mode, 0 otherwise.
+     */
+    public int getContentTranslationX() {
+        return directionVertical()? 0 : getContentTranslation();
+    }
+
+    /**
+     * @return the vertical translation of the content in the translation mode, 0 otherwise.
+     */
+    public int getContentTranslationY() {
+        return directionVertical()? getContentTranslation() : 0;
+    }
+
+    private int getContentTranslation() {
+        return mLayout.getReverseLayout()? -mOverScrollOffset : mOverScrollOffset;
+    }
+
+    /**
+     * Drop the memoized edge geometry. It must be called whenever the children of the
+     * RecyclerView move: after a scroll, a layout or a child attach / detach.
+     */
+    public void invalidateEdges() {
+        mHeaderVisibleValid = false;
+        mFooterVisibleValid = false;
+        mFooterOccupiesValid = false;
+        mVisibleRangeValid = false;
+    }
+
+    /**
+     * Called after the RecyclerView has laid out its children.
+     */
+    public void onLayout() {
+        invalidateEdges();
+
+        if (mGapAdapter != null) {
+            mGapAdapter.measureChildren();
+        }
+
+        if (mApproachListener != null) {
+            checkApproachEdges();
+        }
+    }
+
+    /**
+     * @param listener null to disable the callback.
+     * @param leadItems the edge is approached when at most this many items are left before
+     *                  it, -1 to only use the pixel lead.
+     * @param leadPixels the edge is approached when at most this many pixels are left before
+     *                   it, estimated from the size of the outermost visible item. -1 to only
+     *                   use the item lead.
+     */
+    public void setOnApproachEdgeListener(RecyclerViewBouncy.OnApproachEdgeListener listener,
+                                          int leadItems, int leadPixels) {
+        mApproachListener = listener;
+        mApproachLeadItems = leadItems;
+        mApproachLeadPixels = leadPixels;
+        mApproachingStart = false;
+        mApproachingEnd = false;
+    }
+
+    /**
+     * Stop the scroll-back animation, give the springs back to the shared spring system and
+     * drop the physics until the next edge contact. It should be called when the adapter is
+     * replaced.
+     */
+    public void release() {
+        mIsScrollBack = false;
+
+        if (mPhysics != null) {
+            mPhysics.stopScroll();
+            mPhysics.release();
+            mPhysics = null;
+        }
+
+        if (mMetrics != null) {
+            mMetrics.cancelEpisode();
+        }
+    }
+
+    /**
+     * Called when the RecyclerView is detached from window: the running bounce is cancelled
+     * and the list is left at rest at its edge, without any physics.
+     */
+    public void onDetachedFromWindow() {
+        release();
+
+        mShouldUseSpring = false;
+        mFlingOverScrollBack = false;
+        mTouchState = TOUCH_IDLE;
+
+        if (mTranslationMode) {
+            setOverScrollOffset(0);
+            return;
+        }
+
+        final int headerVisible = getHeaderVisibleLength();
+        final int footerVisible = getFooterVisibleLength();
+
+        // hide the gap the same way the spring would have
+        if (headerVisible > 0) {
+            scrollList(mLayout.getReverseLayout()? -headerVisible : headerVisible);
+        } else if (footerVisible > 0) {
+            scrollList(mLayout.getReverseLayout()? footerVisible : -footerVisible);
+        }
+    }
+
+    /**
+     * Remove all the listeners of this controller from the RecyclerView and release the physics.
+     * It must be called when this controller is not used anymore.
+     */
+    public void detach() {
+        release();
+
+        mRecyclerView.removeOnScrollListener(mOnScrollListener);
+        mRecyclerView.removeOnItemTouchListener(mOnItemTouchListener);
+        mRecyclerView.removeOnChildAttachStateChangeListener(mChildAttachListener);
+        mRecyclerView.setOverScrollMode(mOverScrollModeBefore);
+
+        if (mTranslationMode) {
+            setOverScrollOffset(0);
+        }
+        mGapAdapter = null;
+    }
+
+    /**
+     * Forget the state of the previous adapter.
+     */
+    public void resetState() {
+        release();
+
+        mShouldUseSpring = false;
+        mFlingOverScrollBack = false;
+        mPrevFooterVisible = 0;
+        mApproachingStart = false;
+        mApproachingEnd = false;
+        setOverScrollOffset(0);
+
+        invalidateEdges();
+    }
+
+    @Override
+    public void onSpringUpdate(int currX, int currY) {
+        if (!mShouldUseSpring)
+            return;
+
+        final BouncyMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginSection(BouncyMetrics.SECTION_SPRING_UPDATE);
+        }
+
+        try {
+            updateSpring(currX, currY);
+        } finally {
+            if (metrics != null) {
+                metrics.endSection(BouncyMetrics.SECTION_SPRING_UPDATE);
+            }
+        }
+    }
+
+    private void updateSpring(int currX, int currY) {
+        if (mRecorder != null) {
+            mRecorder.recordSpring(FrameClock.now(), directionVertical()? currY : currX);
+        }
+
+        if (mTranslationMode) {
+            setOverScrollOffset(mSpringSide * (directionVertical()? currY : currX));
+            return;
+        }
+
+        synchronized (lockSpring) {
+            final int visibleHeader = getHeaderVisibleLength();
+            final int visibleFooter = getFooterVisibleLength();
+
+            int diff = directionVertical()? currY : currX;
+
+            if (visibleHeader > 0) {
+                diff -= visibleHeader;
+            } else {
+                diff -= visibleFooter;
+            }
+
+            // the gap grows while the spring absorbs the velocity of a fling, then shrinks
+            if (diff != 0) {
+                // discard the first value of a scroll back from rest
+                if (diff < 0 && isSpringFirstValue) {
+                    isSpringFirstValue = false;
+                    return;
+                }
+
+                if (!mFlingOverScrollBack) {
+                    mRecyclerView.stopScroll();
+                }
+
+                if (visibleHeader > 0) {
+                    diff *= -1;
+                }
+
+                if (mLayout.getReverseLayout()) {
+                    diff *= -1;
+                }
+
+                scrollBy(diff);
+            }
+        }
+    }
+
+    @Override
+    public void onSpringAtRest() {
+        mIsScrollBack = false;
+
+        if (mMetrics != null) {
+            mMetrics.endEpisode();
+        }
+    }
+
+    private void initRecyclerView() {
+        // the edges are reached in the translation mode, the bounce replaces the glow
+        mOverScrollModeBefore = mRecyclerView.getOverScrollMode();
+        if (mTranslationMode) {
+            mRecyclerView.setOverScrollMode(View.OVER_SCROLL_NEVER);
+        }
+
+        initOnScrollListener();
+        initTouchListener();
+        initChildAttachListener();
+    }
+
+    private void initChildAttachListener() {
+        mChildAttachListener = new RecyclerView.OnChildAttachStateChangeListener() {
+            @Override
+            public void onChildViewAttachedToWindow(View view) {
+                invalidateEdges();
+
+                if (mTranslationMode) {
+                    translateChild(view, mChildTranslationX, mChildTranslationY);
+                }
+
+                if (mGapAdapter != null) {
+                    mGapAdapter.onChildAttached(view);
+                }
+            }
+
+            @Override
+            public void onChildViewDetachedFromWindow(View view) {
+                invalidateEdges();
+
+                // the view may be recycled, or reused by another list
+                if (mTranslationMode) {
+                    translateChild(view, -mChildTranslationX, -mChildTranslationY);
+                }
+
+                if (mGapAdapter != null) {
+                    mGapAdapter.onChildDetached(view);
+                }
+            }
+        };
+        mRecyclerView.addOnChildAttachStateChangeListener(mChildAttachListener);
+    }
+
+    private void initOnScrollListener() {
+        mOnScrollListener = new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                final BouncyMetrics metrics = mMetrics;
+                if (metrics != null) {
+                    metrics.beginSection(BouncyMetrics.SECTION_ON_SCROLLED);
+                }
+
+                try {
+                    handleScrolled(recyclerView, dx, dy);
+                } finally {
+                    if (metrics != null) {
+                        metrics.endSection(BouncyMetrics.SECTION_ON_SCROLLED);
+                    }
+                }
+            }
+
+            private void handleScrolled(RecyclerView recyclerView, int dx, int dy) {
+                invalidateEdges();
+
+                if (mGapAdapter != null) {
+                    mGapAdapter.measureAttachedChildren();
+                }
+
+                final int deltaDist = (directionVertical()? dy : dx) * (mLayout.getReverseLayout()? -1 : 1);
+
+                if (footerOccupiesWholeView()) {
+                    mPrevFooterVisible = Math.max(0, mPrevFooterVisible + deltaDist);
+                    mFooterVisibleValid = false;
+                }
+
+                // observe the geometry only once it is up to date for this pass
+                if (mMetrics != null) {
+                    updateMetricsEpisode();
+                }
+
+                if (mApproachListener != null) {
+                    checkApproachEdges();
+                }
+
+                final int state = recyclerView.getScrollState();
+                final boolean usingScrollBy = (state == RecyclerView.SCROLL_STATE_IDLE && deltaDist != 0);
+                final boolean isDragging = (state == RecyclerView.SCROLL_STATE_DRAGGING);
+
+                final long now = FrameClock.now();
+                if (mRecorder != null) {
+                    mRecorder.recordScroll(now, dx, dy, state);
+                }
+
+                mScrollVelocity.addDelta(now, directionVertical()? dy : dx);
+                mScrollSpeed = mScrollVelocity.getVelocity();
+
+                if (mTranslationMode) {
+                    // a fling has just reached the edge of the list
+                    if (state == RecyclerView.SCROLL_STATE_SETTLING && mOverScrollOffset == 0
+                            && deltaDist != 0 && !canScrollList(directionVertical()? dy : dx)) {
+                        absorbFling(0, deltaDist < 0, mScrollSpeed);
+                    }
+                    return;
+                }
+
+                if (!isDragging && !usingScrollBy) {
+                    final int footerVisible = getFooterVisibleLength();
+                    final int headerVisible = getHeaderVisibleLength();
+
+                    final boolean scrolledBackToOtherSide = mIsScrollBack && ((deltaDist > 0 && footerVisible > 0)
+                            || (deltaDist < 0 && headerVisible > 0));
+
+                    if (scrolledBackToOtherSide) {
+                        mIsScrollBack = false;
+                        stopPhysics();
+                    }
+
+                    if (footerVisible == 0 && headerVisible == 0) {
+                        mIsScrollBack = false;
+                        stopPhysics();
+
+                    } else if (!mIsScrollBack) {
+                        // a fling has just revealed a gap
+                        absorbFling(Math.max(headerVisible, footerVisible), headerVisible > 0, mScrollSpeed);
+                    }
+                }
+            }
+        };
+        mRecyclerView.addOnScrollListener(mOnScrollListener);
+    }
+
+    private void initTouchListener() {
+        mOnItemTouchListener = new RecyclerView.SimpleOnItemTouchListener() {
+            @Override
+            public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
+                onTouch(e, false);
+
+                // return true so that RecyclerView won't scroll when the user scroll.
+                // We scroll it using scrollBy().
+                return shouldInterceptTouch();
+            }
+
+            @Override
+            public void onTouchEvent(RecyclerView rv, MotionEvent e) {
+                onTouch(e, true);
+            }
+        };
+        mRecyclerView.addOnItemTouchListener(mOnItemTouchListener);
+    }
+
+    /**
+     * Handle a touch event. Every event of a gesture goes through here exactly once, either
+     * from onInterceptTouchEvent() or, once intercepted, from onTouchEvent().
+     * @param owned true if the gesture has been intercepted, the RecyclerView does not
+     *              scroll nor fling by itself anymore.
+     */
+    private void onTouch(MotionEvent e, boolean owned) {
+        if (mRecorder != null) {
+            mRecorder.recordTouch(e);
+        }
+
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mTouchVelocity.clear();
+                mScrollVelocity.clear();
+                addTouchSamples(e, 0);
+
+                mActivePointerId = e.getPointerId(0);
+                mLastTouchX = e.getX();
+                mLastTouchY = e.getY();
+                mTouchState = TOUCH_PENDING;
+
+                mShouldUseSpring = false;
+                mFlingOverScrollBack = false;
+
+                stopPhysics();
+                mIsScrollBack = false;
+                mRecyclerView.stopScroll();
+                break;
+
+            case MotionEvent.ACTION_POINTER_DOWN:
+                setActivePointer(e, e.getActionIndex());
+                break;
+
+            case MotionEvent.ACTION_POINTER_UP: {
+                final int index = e.getActionIndex();
+                if (e.getPointerId(index) == mActivePointerId) {
+                    setActivePointer(e, (index == 0)? 1 : 0);
+                }
+                break;
+            }
+
+            case MotionEvent.ACTION_MOVE: {
+                final int index = e.findPointerIndex(mActivePointerId);
+                if (index < 0 || mTouchState == TOUCH_IDLE)
+                    break;
+
+                addTouchSamples(e, index);
+
+                final float x = e.getX(index);
+                final float y = e.getY(index);
+                final float distance = directionVertical()? mLastTouchY - y : mLastTouchX - x;
+
+                if (mTouchState == TOUCH_PENDING) {
+                    if (Math.abs(distance) < mTouchSlop)
+                        break;
+                    mTouchState = TOUCH_DRAGGING;
+                }
+
+                mLastTouchX = x;
+                mLastTouchY = y;
+                onDrag(distance, owned);
+                break;
+            }
+
+            case MotionEvent.ACTION_UP: {
+                final int index = e.findPointerIndex(mActivePointerId);
+                if (index >= 0) {
+                    addTouchSamples(e, index);
+                }
+
+                final int headerVisible = getHeaderVisibleLength();
+                final int footerVisible = getFooterVisibleLength();
+
+                onActionUp();
+                if (owned) {
+                    flingOnRelease(headerVisible, footerVisible);
+                }
+                mTouchState = TOUCH_IDLE;
+                break;
+            }
+
+            case MotionEvent.ACTION_CANCEL:
+                onActionUp();
+                mTouchState = TOUCH_IDLE;
+                break;
+        }
+    }
+
+    /**
+     * Follow another finger, its movement is measured from its current position.
+     */
+    private void setActivePointer(MotionEvent e, int pointerIndex) {
+        mActivePointerId = e.getPointerId(pointerIndex);
+        mLastTouchX = e.getX(pointerIndex);
+        mLastTouchY = e.getY(pointerIndex);
+        mTouchVelocity.clear();
+    }
+
+    /**
+     * The finger has moved by distance, in the direction of {@link #scrollBy(int)}.
+     * @param owned see {@link #onTouch(MotionEvent, boolean)}.
+     */
+    private void onDrag(float distance, boolean owned) {
+        final int headerVisible = getHeaderVisibleLength();
+        final int footerVisible = getFooterVisibleLength();
+
+        int visible = (headerVisible > 0)? headerVisible : footerVisible;
+
+        if (visible > 0) {
+            scrollBy((int) BounceMath.dampDrag(distance, visible, mGapLimitPx));
+        }
+
+        // reached the edge of the list, start translating the content.
+        else if (mTranslationMode && !canScrollList((int) distance)) {
+            scrollBy((int) distance);
+        }
+
+        // the gesture is intercepted, manually scroll the recycler view.
+        else if (owned) {
+            scrollList((int) distance);
+        }
+    }
+
+    /**
+     * Fling with the velocity of the finger when the gesture has been intercepted, since the
+     * RecyclerView does not fling by itself then. Over-scrolled, it only flings back toward
+     * the content.
+     */
+    private void flingOnRelease(int headerVisible, int footerVisible) {
+        // the list moves in the opposite direction of the finger, in pixels per second
+        final double velocity = -mTouchVelocity.getVelocity() * 1000;
+        final double correctedVelocity = mLayout.getReverseLayout()? -velocity : velocity;
+
+        final boolean gapVisible = headerVisible > 0 || footerVisible > 0;
+        final boolean isFlingOverBack = gapVisible &&
+                ((headerVisible > 0 && correctedVelocity > 0) || (footerVisible > 0 && correctedVelocity < 0));
+
+        if (gapVisible && !isFlingOverBack)
+            return;
+
+        mFlingOverScrollBack = isFlingOverBack;
+
+        if (directionVertical()) {
+            mRecyclerView.fling(0, (int) velocity);
+        } else {
+            mRecyclerView.fling((int) velocity, 0);
+        }
+    }
+
+    private void onActionUp() {
+        final int footerVisible = getFooterVisibleLength();
+        final int headerVisible = getHeaderVisibleLength();
+        final boolean overScrolled = (footerVisible > 0 || headerVisible > 0);
+
+        if (overScrolled) {
+            if (mMetrics != null) {
+                mMetrics.onRelease();
+            }
+
+            if (mTouchVelocity.hasSamples()) {
+                mScrollSpeed = getDraggedScrollSpeed(Math.max(headerVisible, footerVisible));
+            }
+
+            absorbFling(Math.max(headerVisible, footerVisible), headerVisible > 0, mScrollSpeed);
+        }
+
+        mShouldUseSpring = true;
+    }
+
+    /**
+     * Intercepting touch event will cause the RecyclerView stop receiving scrolling event.
+     * We will need to handle scrolling by using {@link #scrollBy(int)} manually.
+     * @return true if it should intercept touch.
+     */
+    private boolean shouldInterceptTouch() {
+        final int headerVisible = getHeaderVisibleLength();
+        final int footerVisible = getFooterVisibleLength();
+
+        return headerVisible > 0 || footerVisible > 0;
+    }
+
+    /**
+     * Feed the finger positions of a touch event, including the batched historical samples,
+     * to {@link #mTouchVelocity}.
+     */
+    private void addTouchSamples(MotionEvent e, int pointerIndex) {
+        final boolean vertical = directionVertical();
+
+        for (int i = 0; i < e.getHistorySize(); i++) {
+            mTouchVelocity.addPosition(e.getHistoricalEventTime(i) * 1000000L,
+                    vertical? e.getHistoricalY(pointerIndex, i) : e.getHistoricalX(pointerIndex, i));
+        }
+        mTouchVelocity.addPosition(e.getEventTime() * 1000000L,
+                vertical? e.getY(pointerIndex) : e.getX(pointerIndex));
+    }
+
+    /**
+     * The scroll speed produced by the finger while the gap is visible. The list moves in the
+     * opposite direction of the finger, damped the same way as in onDrag().
+     * @param visible current visible size of the gap.
+     * @return pixels per ms.
+     */
+    private double getDraggedScrollSpeed(int visible) {
+        return BounceMath.dampSpeed(-mTouchVelocity.getVelocity(), visible, mGapLimitPx);
+    }
+
+    private final Object lockSpring = new Object();
+
+    /**
+     * Scroll back with spring mechanism.
+     */
+    private void scrollBack(int headerVisible, int footerVisible) {
+        if (mMetrics != null) {
+            mMetrics.onRelease();
+        }
+
+        synchronized (lockSpring) {
+            mIsScrollBack = true;
+            isSpringFirstValue = true;
+
+            mRecyclerView.stopScroll();
+
+            mSpringSide = (headerVisible > 0)? 1 : -1;
+            if (headerVisible > 0) {
+                startSpringScroll(headerVisible);
+            } else {
+                startSpringScroll(footerVisible);
+            }
+        }
+    }
+
+    /**
+     * The furthest the content may travel past the edge for a given speed, the higher the
+     * speed factor the shorter.
+     * @param speed px per ms, toward the edge.
+     * @return pixels
+     */
+    private int getMaxOverScroll(double speed) {
+        return BounceMath.maxOverScroll(pxToDp(speed), mGapLimitPx, mConfig.speedFactor);
+    }
+
+    /**
+     * Scroll by vertically or horizontally depends on the direction of the
+     * LinearLayoutManager.
+     * @param dist in pixels.
+     */
+    private void scrollBy(int dist) {
+        final BouncyMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginSection(BouncyMetrics.SECTION_SCROLL_BY);
+        }
+
+        try {
+            if (mTranslationMode) {
+                translateBy(dist);
+            } else {
+                scrollList(dist);
+            }
+        } finally {
+            if (metrics != null) {
+                metrics.endSection(BouncyMetrics.SECTION_SCROLL_BY);
+            }
+        }
+    }
+
+    private void scrollList(int dist) {
+        if (directionVertical()) {
+            mRecyclerView.scrollBy(0, dist);
+        } else {
+            mRecyclerView.scrollBy(dist, 0);
+        }
+    }
+
+    /**
+     * @param dist in pixels, with the sign of {@link #scrollBy(int)}.
+     * @return true if the list can scroll in the direction of dist.
+     */
+    private boolean canScrollList(int dist) {
+        if (dist == 0)
+            return true;
+
+        final int direction = (dist > 0)? 1 : -1;
+        return directionVertical()? mRecyclerView.canScrollVertically(direction)
+                : mRecyclerView.canScrollHorizontally(direction);
+    }
+
+    /**
+     * Scroll in the translation mode: the over-scroll is consumed first, then the list is
+     * scrolled, then the content is translated once the list has reached its edge.
+     * @param dist in pixels.
+     */
+    private void translateBy(int dist) {
+        final int offset = mOverScrollOffset;
+
+        if (offset == 0 && canScrollList(dist)) {
+            scrollList(dist);
+            return;
+        }
+
+        final int correctedDist = mLayout.getReverseLayout()? -dist : dist;
+        final int newOffset = offset - correctedDist;
+
+        // moved back past the edge, the rest of the distance scrolls the list
+        if (offset != 0 && (offset > 0) != (newOffset > 0) && newOffset != 0) {
+            setOverScrollOffset(0);
+            scrollList(mLayout.getReverseLayout()? newOffset : -newOffset);
+            return;
+        }
+
+        setOverScrollOffset(Math.max(-mGapLimitPx, Math.min(newOffset, mGapLimitPx)));
+    }
+
+    /**
+     * Move the children by the content translation. A translation is a property of the
+     * display list of a child, so the list is not redrawn and the touch events hit the
+     * children where they are drawn. The translation is added to the one of the child, which
+     * may be animated by the item animator.
+     */
+    private void updateChildTranslation() {
+        final int translationX = getContentTranslationX();
+        final int translationY = getContentTranslationY();
+        final int dx = translationX - mChildTranslationX;
+        final int dy = translationY - mChildTranslationY;
+
+        if (dx == 0 && dy == 0)
+            return;
+
+        for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+            translateChild(mRecyclerView.getChildAt(i), dx, dy);
+        }
+
+        mChildTranslationX = translationX;
+        mChildTranslationY = translationY;
+    }
+
+    private static void translateChild(View child, int dx, int dy) {
+        if (dx != 0) {
+            child.setTranslationX(child.getTranslationX() + dx);
+        }
+
+        if (dy != 0) {
+            child.setTranslationY(child.getTranslationY() + dy);
+        }
+    }
+
+    private void setOverScrollOffset(int offset) {
+        if (offset == mOverScrollOffset)
+            return;
+
+        mOverScrollOffset = offset;
+        invalidateEdges();
+        updateChildTranslation();
+
+        if (mMetrics != null) {
+            updateMetricsEpisode();
+        }
+    }
+
+    /**
+     * The content has moved past an edge of the list with the given speed: the spring takes
+     * over that exact velocity, so the content keeps moving outward, stops and comes back in
+     * one continuous motion. Without outward speed this is a plain scroll back.
+     * @param visible current over-scroll distance.
+     * @param headerSide true if the content is past the start of the list.
+     * @param speed pixels per ms, positive when the scroll offset increases.
+     */
+    private void absorbFling(int visible, boolean headerSide, double speed) {
+        if (mLayout.getReverseLayout())
+            speed *= -1.0;
+
+        final double outwardSpeed = Math.max(headerSide? -speed : speed, 0);
+
+        final float velocity = (float) BounceMath.handOffVelocity(outwardSpeed, visible,
+                getMaxOverScroll(outwardSpeed), mConfig.tension);
+
+        if (velocity <= 0) {
+            if (visible > 0) {
+                scrollBack(headerSide? visible : 0, headerSide? 0 : visible);
+            }
+            return;
+        }
+
+        mRecyclerView.stopScroll();
+
+        if (mMetrics != null) {
+            mMetrics.startEpisode();
+            mMetrics.onRelease();
+        }
+
+        synchronized (lockSpring) {
+            mIsScrollBack = true;
+            isSpringFirstValue = false;
+            mSpringSide = headerSide? 1 : -1;
+
+            if (directionVertical()) {
+                getPhysics().startScroll(0, visible, 0, velocity);
+            } else {
+                getPhysics().startScroll(visible, 0, velocity, 0);
+            }
+        }
+    }
+
+    /**
+     * An over-scroll episode lasts while one of the gaps is visible.
+     */
+    private void updateMetricsEpisode() {
+        final int visible = Math.max(getHeaderVisibleLength(), getFooterVisibleLength());
+
+        if (visible > 0) {
+            mMetrics.startEpisode();
+            mMetrics.onOverScroll(visible);
+        } else {
+            mMetrics.endEpisode();
+        }
+    }
+
+    /**
+     * Set the spring value to start the spring scroll-back animation.
+     * The spring will contract and finish with the value 0.
+     * @param dist a positive value.
+     */
+    private void startSpringScroll(int dist) {
+        if (directionVertical()) {
+            getPhysics().startScroll(0, dist);
+        } else {
+            getPhysics().startScroll(dist, 0);
+        }
+    }
+
+    /**
+     * @return If the content size is less than the RecyclerView's size, then return the different.
+     * Return 0 otherwise.
+     */
+    private int contentSizeLessThanView() {
+        final int recyclerSize = directionVertical()? mRecyclerView.getHeight() : mRecyclerView.getWidth();
+        return Math.max(recyclerSize - mGapAdapter.estimateContentSize(), 0);
+    }
+
+    /**
+     * Get the visible size of the footer view. The size is vertically or horizontally
+     * depends on the RecyclerView's direction.
+     * @return visible size in pixels, 0 if not visible.
+     */
+    private int getFooterVisibleLength() {
+        if (!mFooterVisibleValid) {
+            mFooterVisible = computeFooterVisibleLength();
+            mFooterVisibleValid = true;
+        }
+        return mFooterVisible;
+    }
+
+    private int computeFooterVisibleLength() {
+        if (mTranslationMode || mGapAdapter == null) {
+            return Math.max(0, -mOverScrollOffset);
+        }
+
+        if (footerOccupiesWholeView()) {
+            return mPrevFooterVisible;
+        }
+
+        // footer is not visible
+        if (getLastVisiblePosition() != mGapAdapter.getItemCount() - 1) {
+            mPrevFooterVisible = 0;
+            return 0;
+        }
+
+        final View footerView = mGapAdapter.getFooterView();
+        if (footerView == null) {
+            mPrevFooterVisible = 0;
+            return 0;
+        }
+
+        int result;
+        if (directionVertical()) {
+            if (!mLayout.getReverseLayout()) {
+                result = getBottomVisible(footerView);
+            } else {
+                result = getTopVisible(footerView);
+            }
+        } else {
+            if (!mLayout.getReverseLayout()) {
+                result = getRightVisible(footerView);
+            } else {
+                result = getLeftVisible(footerView);
+            }
+        }
+
+        if (mGapAdapter.getAdapterItemCount() <= mConfig.maxAdapterSizeToEstimate) {
+            result -= contentSizeLessThanView();
+        }
+
+        result = Math.max(0, result);
+        mPrevFooterVisible = result;
+        return result;
+    }
+
+    /**
+     * Get the visible size of the header view. The size is vertically or horizontally
+     * depends on the RecyclerView's direction.
+     * @return visible size in pixels, 0 if not visible.
+     */
+    private int getHeaderVisibleLength() {
+        if (!mHeaderVisibleValid) {
+            mHeaderVisible = computeHeaderVisibleLength();
+            mHeaderVisibleValid = true;
+        }
+        return mHeaderVisible;
+    }
+
+    private int computeHeaderVisibleLength() {
+        if (mTranslationMode || mGapAdapter == null) {
+            return Math.max(0, mOverScrollOffset);
+        }
+
+        // header is not visible
+        if (getFirstVisiblePosition() != 0)
+            return 0;
+
+        final View headerView = mGapAdapter.getHeaderView();
+        if (headerView == null)
+            return 0;
+
+        if (directionVertical()) {
+            if (!mLayout.getReverseLayout()) {
+                return getTopVisible(headerView);
+            } else {
+                return getBottomVisible(headerView);
+            }
+        }
+
+        if (!mLayout.getReverseLayout()) {
+            return getLeftVisible(headerView);
+        }
+
+        return getRightVisible(headerView);
+    }
+
+    /**
+     * @return the layout position of the first visible item, including the gaps.
+     */
+    private int getFirstVisiblePosition() {
+        updateVisibleRange();
+        return mFirstVisible;
+    }
+
+    /**
+     * @return the layout position of the last visible item, including the gaps.
+     */
+    private int getLastVisiblePosition() {
+        updateVisibleRange();
+        return mLastVisible;
+    }
+
+    private void updateVisibleRange() {
+        if (!mVisibleRangeValid) {
+            mFirstVisible = mLayout.findFirstVisibleItemPosition();
+            mLastVisible = mLayout.findLastVisibleItemPosition();
+            mVisibleRangeValid = true;
+        }
+    }
+
+    /**
+     * Fire the approaching edge callback for the edges which have just come within the lead.
+     */
+    private void checkApproachEdges() {
+        final RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        final int first = getFirstVisiblePosition();
+        final int last = getLastVisiblePosition();
+
+        if (adapter == null || first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION)
+            return;
+
+        // positions in the adapter of the user
+        final int offset = (mGapAdapter != null)? 1 : 0;
+        final int itemCount = adapter.getItemCount() - 2 * offset;
+        if (itemCount <= 0)
+            return;
+
+        final int firstItem = Math.max(0, first - offset);
+        final int lastItem = Math.min(itemCount - 1, last - offset);
+
+        final boolean approachingStart = isApproaching(firstItem, firstItem + offset, true);
+        final boolean approachingEnd = isApproaching(itemCount - 1 - lastItem, lastItem + offset, false);
+
+        final boolean fireStart = approachingStart && !mApproachingStart;
+        final boolean fireEnd = approachingEnd && !mApproachingEnd;
+        mApproachingStart = approachingStart;
+        mApproachingEnd = approachingEnd;
+
+        if (fireStart) {
+            mApproachListener.onApproachEdge(RecyclerViewBouncy.EDGE_START);
+        }
+
+        if (fireEnd) {
+            mApproachListener.onApproachEdge(RecyclerViewBouncy.EDGE_END);
+        }
+    }
+
+    /**
+     * @param remainingItems number of items between the outermost visible item and the edge.
+     * @param position layout position of the outermost visible item.
+     * @param start true for the start of the list, false for its end.
+     */
+    private boolean isApproaching(int remainingItems, int position, boolean start) {
+        if (mApproachLeadItems >= 0 && remainingItems <= mApproachLeadItems)
+            return true;
+
+        if (mApproachLeadPixels < 0)
+            return false;
+
+        final View view = mLayout.getLayoutManager().findViewByPosition(position);
+        if (view == null)
+            return false;
+
+        final int size = directionVertical()? view.getHeight() : view.getWidth();
+        final long rows = (remainingItems + mLayout.getSpanCount() - 1) / mLayout.getSpanCount();
+        final long remainingPixels = getHiddenLength(view, start) + rows * size;
+
+        return remainingPixels <= mApproachLeadPixels;
+    }
+
+    /**
+     * @param start true for the side of the start of the list, false for its end.
+     * @return the length of the view beyond that side of the RecyclerView, 0 if it is inside.
+     */
+    private int getHiddenLength(View view, boolean start) {
+        // the start of the list is at the top or left, unless the layout is reversed
+        final boolean topLeft = (start != mLayout.getReverseLayout());
+
+        if (directionVertical()) {
+            return Math.max(0, topLeft? mRecyclerView.getPaddingTop() - view.getTop()
+                    : view.getBottom() - mRecyclerView.getHeight() + mRecyclerView.getPaddingBottom());
+        }
+
+        return Math.max(0, topLeft? mRecyclerView.getPaddingLeft() - view.getLeft()
+                : view.getRight() - mRecyclerView.getWidth() + mRecyclerView.getPaddingRight());
+    }
+
+    /**
+     * Get the visible size of a view to the top of the RecyclerView.
+     * @param view to be checked
+     * @return visible size in pixels, 0 if not visible.
+     */
+    private int getTopVisible(View view) {
+        return Math.max(0, view.getBottom() - mRecyclerView.getPaddingTop());
+    }
+
+    /**
+     * Get the visible size of a view to the bottom of the RecyclerView.
+     * @param view to be checked
+     * @return visible size in pixels, 0 if not visible.
+     */
+    private int getBottomVisible(View view) {
+        return Math.max(0, mRecyclerView.getHeight() - view.getTop() - mRecyclerView.getPaddingBottom());
+    }
+
+    /**
+     * Get the visible size of a view to the left of the RecyclerView.
+     * @param view to be checked
+     * @return visible size in pixels, 0 if not visible.
+     */
+    private int getLeftVisible(View view) {
+        return Math.max(0, view.getRight() - mRecyclerView.getPaddingLeft());
+    }
+
+    /**
+     * Get the visible size of a view to the right of the RecyclerView.
+     * @param view to be checked
+     * @return visible size in pixels, 0 if not visible.
+     */
+    private int getRightVisible(View view) {
+        return Math.max(0, mRecyclerView.getWidth() - view.getLeft() - mRecyclerView.getPaddingRight());
+    }
+
+    /**
+     * Check if the footer view occupies the whole RecyclerView.
+     */
+    private boolean footerOccupiesWholeView() {
+        if (!mFooterOccupiesValid) {
+            mFooterOccupies = computeFooterOccupiesWholeView();
+            mFooterOccupiesValid = true;
+        }
+        return mFooterOccupies;
+    }
+
+    private boolean computeFooterOccupiesWholeView() {
+        if (mTranslationMode || mGapAdapter == null || mGapAdapter.getItemCount() == 0)
+            return false;
+
+        final View footerView = mGapAdapter.getFooterView();
+        if (footerView == null)
+            return false;
+
+        final int firstX = mRecyclerView.getPaddingLeft();
+        final int firstY = mRecyclerView.getPaddingTop();
+        final int lastX = mRecyclerView.getWidth() - 1 - mRecyclerView.getPaddingRight();
+        final int lastY = mRecyclerView.getHeight() - 1 - mRecyclerView.getPaddingBottom();
+
+        if (!mLayout.getReverseLayout()) {
+            if (directionVertical()) {
+                return (mRecyclerView.findChildViewUnder(firstX, firstY) == footerView) ||
+                        (mRecyclerView.findChildViewUnder(lastX, firstY) == footerView);
+            } else {
+                return (mRecyclerView.findChildViewUnder(firstX, firstY) == footerView) ||
+                        (mRecyclerView.findChildViewUnder(firstX, lastY) == footerView);
+            }
+        }
+
+        if (directionVertical()) {
+            return (mRecyclerView.findChildViewUnder(firstX, lastY) == footerView) ||
+                    (mRecyclerView.findChildViewUnder(lastX, lastY) == footerView);
+        } else {
+            return (mRecyclerView.findChildViewUnder(firstX, lastY) == footerView) ||
+                    (mRecyclerView.findChildViewUnder(lastX, firstY) == footerView);
+        }
+    }
+
+    /**
+     * @return the physics, created on the first call after {@link #release()}.
+     */
+    private BouncePhysics getPhysics() {
+        if (mPhysics == null) {
+            mPhysics = createPhysics();
+        }
+        return mPhysics;
+    }
+
+    private void stopPhysics() {
+        if (mPhysics != null) {
+            mPhysics.stopScroll();
+        }
+    }
+
+    private BouncePhysics createPhysics() {
+        return new SpringScroller(mConfig.tension, mConfig.friction,
+                directionVertical()? SpringScroller.AXIS_Y : SpringScroller.AXIS_X, mConfig.physics, this);
+    }
+
+    private boolean directionVertical() {
+        return mLayout.isVertical();
+    }
+
+    private double dpToPx(double dp) {
+        return dp * mDensityScale;
+    }
+
+    private double pxToDp(double px) {
+        return px / mDensityScale;
+    }
+
+    private String format(double value) {
+        return String.format(Locale.US, "%1$,.2f", value);
+    }
+
+    private String toStringScrollState(int state) {
+        switch (state) {
+            case RecyclerView.SCROLL_STATE_DRAGGING:
+                return "dragging";
+            case RecyclerView.SCROLL_STATE_IDLE:
+                return "idle";
+            case RecyclerView.SCROLL_STATE_SETTLING:
+                return "settling";
+        }
+        return "";
+    }
+}
+
+
+
@@ -0,0 +1,315 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.Locale;
+
+/**
+ * Frame-level metrics of an over-scroll episode, from the moment the gap becomes visible
+ * until it is hidden again. Enabled with
+ * {@link RecyclerViewBouncy#setOnBounceMetricsListener(Listener)}.
+ * <p>
+ * The work done in a section includes the sections nested in it, for example
+ * {@link #SECTION_SCROLL_BY} includes the {@link #SECTION_ON_SCROLLED} it triggers.
+ * The sections are also marked with {@link Trace} on API 18+ so they appear in systrace.
+ */
+public class BouncyMetrics {
+
+    public interface Listener {
+        /**
+         * Called when an over-scroll episode ends. The metrics object is reused for the
+         * next episode, so copy the values to keep them.
+         */
+        void onBounceMetrics(BouncyMetrics metrics);
+    }
+
+    public static final int SECTION_SPRING_UPDATE = 0;
+    public static final int SECTION_SCROLL_BY = 1;
+    public static final int SECTION_ON_SCROLLED = 2;
+
+    /**
+     * The view holders created and bound by the wrapped adapter in {@link BouncyConfig#BOUNCE_MODE_GAP}.
+     */
+    public static final int SECTION_ADAPTER = 3;
+    private static final int SECTION_COUNT = 4;
+
+    private static final String[] SECTION_NAMES = {
+            "Bouncy:onSpringUpdate", "Bouncy:scrollBy", "Bouncy:onScrolled", "Bouncy:adapter"
+    };
+
+    private final Listener mListener;
+    private final long mFrameBudgetNanos;
+
+    private final int[] mSectionFrames = new int[SECTION_COUNT];
+    private final int[] mSectionCalls = new int[SECTION_COUNT];
+    private final long[] mSectionNanos = new long[SECTION_COUNT];
+    private final long[] mSectionStart = new long[SECTION_COUNT];
+    private final int[] mSectionLastFrame = new int[SECTION_COUNT];
+
+    private boolean mInEpisode = false;
+    private long mEpisodeStart = 0;
+    private long mDuration = 0;
+    private long mRelease = -1;
+    private long mReleaseToRest = -1;
+    private int mPeakOverScroll = 0;
+
+    private int mFrameCount = 0;
+    private int mJankFrameCount = 0;
+    private long mFrameStart = 0;
+    private long mFrameWork = 0;
+    private long mOuterStart = 0;
+    private int mDepth = 0;
+
+    /**
+     * @param frameBudgetNanos duration of a vsync period, a frame whose work exceeds it is janky.
+     */
+    BouncyMetrics(Listener listener, long frameBudgetNanos) {
+        if (listener == null)
+            throw new RuntimeException("null listener");
+
+        if (frameBudgetNanos <= 0)
+            throw new IllegalArgumentException("frame budget must be positive");
+
+        mListener = listener;
+        mFrameBudgetNanos = frameBudgetNanos;
+    }
+
+    /**
+     * @return number of frames in which the section ran.
+     */
+    public int getSectionFrameCount(int section) {
+        return mSectionFrames[section];
+    }
+
+    /**
+     * @return number of times the section ran, nested runs included.
+     */
+    public int getSectionCallCount(int section) {
+        return mSectionCalls[section];
+    }
+
+    /**
+     * @return wall time spent in the section, in nanoseconds.
+     */
+    public long getSectionTimeNanos(int section) {
+        return mSectionNanos[section];
+    }
+
+    /**
+     * @return number of frames in which any of the sections ran.
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return number of frames whose work exceeded {@link #getFrameBudgetNanos()}.
+     */
+    public int getJankFrameCount() {
+        return mJankFrameCount;
+    }
+
+    public long getFrameBudgetNanos() {
+        return mFrameBudgetNanos;
+    }
+
+    /**
+     * @return duration of the episode, in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return mDuration;
+    }
+
+    /**
+     * @return time from the release of the finger, or the start of the scroll-back after a fling,
+     * until the list is at rest. -1 if the episode ended while the list was still being dragged.
+     */
+    public long getReleaseToRestNanos() {
+        return mReleaseToRest;
+    }
+
+    /**
+     * @return the largest over-scroll distance of the episode, in pixels.
+     */
+    public int getPeakOverScroll() {
+        return mPeakOverScroll;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "BouncyMetrics{frames=%d, jank=%d, springUpdate=%d/%dus, scrollBy=%d(%d)/%dus, " +
+                        "onScrolled=%d/%dus, adapter=%d(%d)/%dus, peak=%dpx, duration=%dms, releaseToRest=%dms}",
+                mFrameCount, mJankFrameCount,
+                mSectionFrames[SECTION_SPRING_UPDATE], mSectionNanos[SECTION_SPRING_UPDATE] / 1000,
+                mSectionFrames[SECTION_SCROLL_BY], mSectionCalls[SECTION_SCROLL_BY],
+                mSectionNanos[SECTION_SCROLL_BY] / 1000,
+                mSectionFrames[SECTION_ON_SCROLLED], mSectionNanos[SECTION_ON_SCROLLED] / 1000,
+                mSectionFrames[SECTION_ADAPTER], mSectionCalls[SECTION_ADAPTER],
+                mSectionNanos[SECTION_ADAPTER] / 1000,
+                mPeakOverScroll, mDuration / 1000000, mReleaseToRest < 0? -1 : mReleaseToRest / 1000000);
+    }
+
+    boolean isInEpisode() {
+        return mInEpisode;
+    }
+
+    /**
+     * The gap became visible. The sections which are running keep being measured.
+     */
+    void startEpisode() {
+        if (mInEpisode)
+            return;
+
+        final long now = System.nanoTime();
+        mInEpisode = true;
+        mEpisodeStart = FrameClock.now();
+        mRelease = -1;
+        mReleaseToRest = -1;
+        mDuration = 0;
+        mPeakOverScroll = 0;
+
+        mFrameCount = 0;
+        mJankFrameCount = 0;
+        mFrameWork = 0;
+        mFrameStart = now - mFrameBudgetNanos;
+
+        // the sections which are running are not measured
+        mDepth = 0;
+
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            mSectionFrames[i] = 0;
+            mSectionCalls[i] = 0;
+            mSectionNanos[i] = 0;
+            mSectionLastFrame[i] = -1;
+        }
+    }
+
+    /**
+     * The finger is released, or the list starts scrolling back on its own.
+     */
+    void onRelease() {
+        if (mInEpisode && mRelease < 0) {
+            mRelease = FrameClock.now();
+        }
+    }
+
+    /**
+     * @param distance current over-scroll distance, in pixels.
+     */
+    void onOverScroll(int distance) {
+        if (mInEpisode && distance > mPeakOverScroll) {
+            mPeakOverScroll = distance;
+        }
+    }
+
+    /**
+     * The gap is hidden, or the spring is at rest. Reports the episode to the listener.
+     */
+    void endEpisode() {
+        if (!mInEpisode)
+            return;
+
+        final long now = FrameClock.now();
+        closeFrame();
+
+        mInEpisode = false;
+        mDepth = 0;
+        mDuration = now - mEpisodeStart;
+        mReleaseToRest = (mRelease >= 0)? now - mRelease : -1;
+
+        mListener.onBounceMetrics(this);
+    }
+
+    /**
+     * Drop the current episode without reporting it.
+     */
+    void cancelEpisode() {
+        mInEpisode = false;
+        mDepth = 0;
+    }
+
+    void beginSection(int section) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(SECTION_NAMES[section]);
+        }
+
+        if (!mInEpisode)
+            return;
+
+        final long now = System.nanoTime();
+
+        // the work bursts which start within half a vsync period belong to the same frame
+        if (mDepth == 0) {
+            if (now - mFrameStart >= mFrameBudgetNanos / 2) {
+                closeFrame();
+                newFrame(now);
+            }
+            mOuterStart = now;
+        }
+        mDepth++;
+
+        mSectionCalls[section]++;
+        if (mSectionLastFrame[section] != mFrameCount) {
+            mSectionLastFrame[section] = mFrameCount;
+            mSectionFrames[section]++;
+        }
+        mSectionStart[section] = now;
+    }
+
+    void endSection(int section) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+
+        // not measured, see startEpisode()
+        if (!mInEpisode || mDepth == 0)
+            return;
+
+        final long now = System.nanoTime();
+        mSectionNanos[section] += now - mSectionStart[section];
+
+        mDepth--;
+        if (mDepth == 0) {
+            mFrameWork += now - mOuterStart;
+        }
+    }
+
+    private void newFrame(long now) {
+        mFrameCount++;
+        mFrameStart = now;
+        mFrameWork = 0;
+    }
+
+    private void closeFrame() {
+        if (mFrameWork > mFrameBudgetNanos) {
+            mJankFrameCount++;
+        }
+        mFrameWork = 0;
+    }
+}
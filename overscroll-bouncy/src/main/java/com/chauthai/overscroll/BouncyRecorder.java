@@ -0,0 +1,302 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+
+package com.chauthai.overscroll;
+
+import android.view.MotionEvent;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Opt-in recorder of what drives the over-scroll: the touch events seen by the list, its
+ * scroll callbacks and the spring values. Enabled with
+ * {@link RecyclerViewBouncy#setBouncyRecorder(BouncyRecorder)}, exported with
+ * {@link #writeTo(OutputStream)} and replayed with {@link BouncyReplayer}.
+ * <p>
+ * The records are delta-encoded as zigzag varints into a ring of fixed-size blocks, so the
+ * memory is fixed and recording does not allocate. Each block starts with an absolute sync
+ * record and can be decoded on its own, the oldest block is overwritten when the ring is full.
+ */
+public class BouncyRecorder {
+    static final int MAGIC = 0x424e4359; // "BNCY"
+    static final int VERSION = 1;
+
+    static final int BLOCK_SIZE = 4096;
+
+    static final int RECORD_SYNC = 1;
+    static final int RECORD_TOUCH = 2;
+    static final int RECORD_SCROLL = 3;
+    static final int RECORD_SPRING = 4;
+
+    /**
+     * The pointer positions are stored in 1/16 pixel.
+     */
+    static final float POSITION_SCALE = 16f;
+
+    /**
+     * The pointer ids are folded into this many slots to keep their previous positions.
+     */
+    static final int POINTER_SLOTS = 32;
+
+    private final byte[][] mBlocks;
+    private final int[] mBlockLengths;
+    private final byte[] mScratch = new byte[BLOCK_SIZE];
+
+    /**
+     * Block being written, -1 before the first record, and number of blocks holding records.
+     */
+    private int mCurrentBlock = -1;
+    private int mBlockCount = 0;
+
+    /**
+     * State the deltas are relative to, reset by every sync record. The times are in us.
+     */
+    private long mLastTime = 0;
+    private final int[] mLastX = new int[POINTER_SLOTS];
+    private final int[] mLastY = new int[POINTER_SLOTS];
+
+    /**
+     * @param capacityBytes memory of the ring, at least two blocks of {@link #BLOCK_SIZE} bytes.
+     */
+    public BouncyRecorder(int capacityBytes) {
+        final int blockCount = Math.max(2, capacityBytes / BLOCK_SIZE);
+
+        mBlocks = new byte[blockCount][BLOCK_SIZE];
+        mBlockLengths = new int[blockCount];
+    }
+
+    /**
+     * Drop all the records.
+     */
+    public synchronized void clear() {
+        mCurrentBlock = -1;
+        mBlockCount = 0;
+    }
+
+    /**
+     * Write the records, oldest first. The stream is not closed.
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(mBlockCount);
+
+        for (int i = 0; i < mBlockCount; i++) {
+            final int block = (mCurrentBlock - mBlockCount + 1 + i + mBlocks.length) % mBlocks.length;
+            data.writeInt(mBlockLengths[block]);
+            data.write(mBlocks[block], 0, mBlockLengths[block]);
+        }
+
+        data.flush();
+    }
+
+    /**
+     * Record a touch event with its historical samples.
+     */
+    synchronized void recordTouch(MotionEvent e) {
+        final long firstTime = ((e.getHistorySize() > 0)? e.getHistoricalEventTime(0) : e.getEventTime()) * 1000;
+
+        if (mCurrentBlock < 0) {
+            startBlock(firstTime);
+        }
+
+        int length = encodeTouch(e, true);
+        if (!fits(length)) {
+            startBlock(firstTime);
+            length = encodeTouch(e, true);
+
+            // too many samples for a block, keep the last one only
+            if (!fits(length)) {
+                startBlock(e.getEventTime() * 1000);
+                length = encodeTouch(e, false);
+            }
+        }
+
+        append(length);
+    }
+
+    /**
+     * Record a scroll callback of the list.
+     * @param timeNanos on the {@link FrameClock}.
+     * @param state scroll state of the list.
+     */
+    synchronized void recordScroll(long timeNanos, int dx, int dy, int state) {
+        final long time = timeNanos / 1000;
+
+        if (mCurrentBlock < 0) {
+            startBlock(time);
+        }
+
+        int length = encodeScroll(time, dx, dy, state);
+        if (!fits(length)) {
+            startBlock(time);
+            length = encodeScroll(time, dx, dy, state);
+        }
+
+        append(length);
+    }
+
+    /**
+     * Record a value of the spring.
+     * @param timeNanos on the {@link FrameClock}.
+     */
+    synchronized void recordSpring(long timeNanos, int value) {
+        final long time = timeNanos / 1000;
+
+        if (mCurrentBlock < 0) {
+            startBlock(time);
+        }
+
+        int length = encodeSpring(time, value);
+        if (!fits(length)) {
+            startBlock(time);
+            length = encodeSpring(time, value);
+        }
+
+        append(length);
+    }
+
+    /**
+     * Move to the next block, dropping the oldest one if the ring is full, and write the
+     * sync record the next deltas are relative to.
+     */
+    private void startBlock(long time) {
+        mCurrentBlock = (mCurrentBlock + 1) % mBlocks.length;
+        mBlockCount = Math.min(mBlockCount + 1, mBlocks.length);
+
+        mLastTime = time;
+        Arrays.fill(mLastX, 0);
+        Arrays.fill(mLastY, 0);
+
+        final byte[] block = mBlocks[mCurrentBlock];
+        block[0] = RECORD_SYNC;
+        mBlockLengths[mCurrentBlock] = putVarLong(block, 1, time);
+    }
+
+    private boolean fits(int length) {
+        return length >= 0 && mBlockLengths[mCurrentBlock] + length <= BLOCK_SIZE;
+    }
+
+    private void append(int length) {
+        System.arraycopy(mScratch, 0, mBlocks[mCurrentBlock], mBlockLengths[mCurrentBlock], length);
+        mBlockLengths[mCurrentBlock] += length;
+    }
+
+    /**
+     * The encode methods write a record into {@link #mScratch} and update the delta state.
+     * @return the length of the record, -1 if it does not fit into a block.
+     */
+    private int encodeTouch(MotionEvent e, boolean history) {
+        final byte[] b = mScratch;
+        final int pointerCount = e.getPointerCount();
+        final int historySize = history? e.getHistorySize() : 0;
+
+        b[0] = RECORD_TOUCH;
+        int pos = putVarLong(b, 1, e.getAction());
+        pos = putVarLong(b, pos, e.getEventTime() - e.getDownTime());
+        pos = putVarLong(b, pos, pointerCount);
+
+        for (int p = 0; p < pointerCount; p++) {
+            pos = putVarLong(b, pos, e.getPointerId(p));
+        }
+
+        pos = putVarLong(b, pos, historySize + 1);
+
+        for (int h = 0; h <= historySize; h++) {
+            final boolean current = (h == historySize);
+            final long time = (current? e.getEventTime() : e.getHistoricalEventTime(h)) * 1000;
+            pos = putZigZag(b, pos, time - mLastTime);
+            mLastTime = time;
+
+            for (int p = 0; p < pointerCount; p++) {
+                final int slot = e.getPointerId(p) & (POINTER_SLOTS - 1);
+                final int x = Math.round((current? e.getX(p) : e.getHistoricalX(p, h)) * POSITION_SCALE);
+                final int y = Math.round((current? e.getY(p) : e.getHistoricalY(p, h)) * POSITION_SCALE);
+
+                pos = putZigZag(b, pos, x - mLastX[slot]);
+                pos = putZigZag(b, pos, y - mLastY[slot]);
+                mLastX[slot] = x;
+                mLastY[slot] = y;
+            }
+        }
+
+        return pos;
+    }
+
+    private int encodeScroll(long time, int dx, int dy, int state) {
+        final byte[] b = mScratch;
+
+        b[0] = RECORD_SCROLL;
+        int pos = putZigZag(b, 1, time - mLastTime);
+        pos = putZigZag(b, pos, dx);
+        pos = putZigZag(b, pos, dy);
+        pos = putVarLong(b, pos, state);
+        mLastTime = time;
+
+        return pos;
+    }
+
+    private int encodeSpring(long time, int value) {
+        final byte[] b = mScratch;
+
+        b[0] = RECORD_SPRING;
+        int pos = putZigZag(b, 1, time - mLastTime);
+        pos = putZigZag(b, pos, value);
+        mLastTime = time;
+
+        return pos;
+    }
+
+    private static int putZigZag(byte[] b, int pos, long value) {
+        return putVarLong(b, pos, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * @return the position after the value, -1 if it does not fit or pos is already -1.
+     */
+    private static int putVarLong(byte[] b, int pos, long value) {
+        if (pos < 0)
+            return -1;
+
+        while ((value & ~0x7FL) != 0) {
+            if (pos >= b.length)
+                return -1;
+
+            b[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        if (pos >= b.length)
+            return -1;
+
+        b[pos++] = (byte) value;
+        return pos;
+    }
+}
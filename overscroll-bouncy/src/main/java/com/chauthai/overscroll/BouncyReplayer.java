@@ -0,0 +1,405 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+
+package com.chauthai.overscroll;
+
+import android.os.SystemClock;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Replays the touch events of a trace written by {@link BouncyRecorder#writeTo(java.io.OutputStream)}
+ * into a view, with their recorded timing shifted to the present. The recorded scroll
+ * callbacks and spring values are kept to be compared with those of the replay.
+ */
+public class BouncyReplayer {
+    private final ArrayList<TouchRecord> mTouches = new ArrayList<TouchRecord>();
+    private long[] mScrollTimes = new long[64];
+    private int[] mScrollDx = new int[64];
+    private int[] mScrollDy = new int[64];
+    private int[] mScrollStates = new int[64];
+    private int mScrollCount = 0;
+    private int[] mSpringValues = new int[64];
+    private int mSpringCount = 0;
+
+    private View mTarget;
+    private int mNext = 0;
+
+    /**
+     * Added to the recorded times, in ms, to get the uptime of the replayed events.
+     */
+    private long mTimeShift = 0;
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final View target = mTarget;
+            if (target == null)
+                return;
+
+            dispatch(target, mTouches.get(mNext++));
+            schedule();
+        }
+    };
+
+    /**
+     * Read a whole trace. The stream is not closed.
+     * @throws IOException if the stream fails or is not a valid trace.
+     */
+    public BouncyReplayer(InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+
+        if (data.readInt() != BouncyRecorder.MAGIC)
+            throw new IOException("not a bouncy trace");
+
+        final int version = data.readUnsignedByte();
+        if (version != BouncyRecorder.VERSION)
+            throw new IOException("unsupported trace version: " + version);
+
+        final int blockCount = data.readInt();
+        for (int i = 0; i < blockCount; i++) {
+            final int length = data.readInt();
+            if (length < 0 || length > BouncyRecorder.BLOCK_SIZE)
+                throw new IOException("corrupted trace");
+
+            final byte[] block = new byte[length];
+            data.readFully(block);
+            decodeBlock(block);
+        }
+    }
+
+    public int getTouchEventCount() {
+        return mTouches.size();
+    }
+
+    /**
+     * @return number of recorded scroll callbacks.
+     */
+    public int getScrollCount() {
+        return mScrollCount;
+    }
+
+    /**
+     * @return time of a recorded scroll callback, in us, on the {@link FrameClock} of the recording.
+     */
+    public long getScrollTime(int index) {
+        checkScrollIndex(index);
+        return mScrollTimes[index];
+    }
+
+    public int getScrollDx(int index) {
+        checkScrollIndex(index);
+        return mScrollDx[index];
+    }
+
+    public int getScrollDy(int index) {
+        checkScrollIndex(index);
+        return mScrollDy[index];
+    }
+
+    /**
+     * @return scroll state of the list at a recorded scroll callback.
+     */
+    public int getScrollState(int index) {
+        checkScrollIndex(index);
+        return mScrollStates[index];
+    }
+
+    private void checkScrollIndex(int index) {
+        if (index < 0 || index >= mScrollCount)
+            throw new IndexOutOfBoundsException("index: " + index + ", count: " + mScrollCount);
+    }
+
+    /**
+     * @return number of recorded spring values.
+     */
+    public int getSpringValueCount() {
+        return mSpringCount;
+    }
+
+    public int getSpringValue(int index) {
+        if (index < 0 || index >= mSpringCount)
+            throw new IndexOutOfBoundsException("index: " + index + ", count: " + mSpringCount);
+
+        return mSpringValues[index];
+    }
+
+    /**
+     * Dispatch the touch events to the target at their recorded pace, from the main thread.
+     * The events are posted to the target and paced by {@link SystemClock#uptimeMillis()},
+     * not by the {@link FrameClock}, so the replay follows the real clock and its timing
+     * is not deterministic. Use {@link #dispatchNext(View)} for a deterministic replay.
+     */
+    public void start(View target) {
+        cancel();
+
+        mTarget = target;
+        mNext = 0;
+        resetTimeShift();
+        schedule();
+    }
+
+    public void cancel() {
+        if (mTarget != null) {
+            mTarget.removeCallbacks(mDispatchRunnable);
+            mTarget = null;
+        }
+    }
+
+    /**
+     * Dispatch the next touch event to the target right away, for a replay driven step by
+     * step, for example by a test advancing a fake clock. The events keep their recorded
+     * intervals, shifted to the uptime of the first call.
+     * @return true if there are more events.
+     */
+    public boolean dispatchNext(View target) {
+        if (mNext == 0) {
+            resetTimeShift();
+        }
+
+        if (mNext < mTouches.size()) {
+            dispatch(target, mTouches.get(mNext++));
+        }
+
+        return mNext < mTouches.size();
+    }
+
+    private void resetTimeShift() {
+        mTimeShift = mTouches.isEmpty()? 0 : SystemClock.uptimeMillis() - mTouches.get(0).getEventTime();
+    }
+
+    private void schedule() {
+        if (mTarget == null || mNext >= mTouches.size())
+            return;
+
+        final long delay = mTouches.get(mNext).getEventTime() + mTimeShift - SystemClock.uptimeMillis();
+        mTarget.postDelayed(mDispatchRunnable, Math.max(0, delay));
+    }
+
+    private void dispatch(View target, TouchRecord record) {
+        final int pointerCount = record.mPointerIds.length;
+        final int sampleCount = record.mTimes.length;
+
+        final MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[pointerCount];
+        for (int p = 0; p < pointerCount; p++) {
+            properties[p] = new MotionEvent.PointerProperties();
+            properties[p].id = record.mPointerIds[p];
+            properties[p].toolType = MotionEvent.TOOL_TYPE_FINGER;
+        }
+
+        final long eventTime = record.getEventTime() + mTimeShift;
+        final MotionEvent event = MotionEvent.obtain(eventTime - record.mDownOffset,
+                record.mTimes[0] / 1000 + mTimeShift, record.mAction, pointerCount, properties,
+                getCoords(record, 0), 0, 0, 1f, 1f, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0);
+
+        for (int s = 1; s < sampleCount; s++) {
+            event.addBatch(record.mTimes[s] / 1000 + mTimeShift, getCoords(record, s), 0);
+        }
+
+        target.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    private static MotionEvent.PointerCoords[] getCoords(TouchRecord record, int sample) {
+        final int pointerCount = record.mPointerIds.length;
+        final MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[pointerCount];
+
+        for (int p = 0; p < pointerCount; p++) {
+            coords[p] = new MotionEvent.PointerCoords();
+            coords[p].x = record.mX[sample * pointerCount + p] / BouncyRecorder.POSITION_SCALE;
+            coords[p].y = record.mY[sample * pointerCount + p] / BouncyRecorder.POSITION_SCALE;
+            coords[p].pressure = 1;
+            coords[p].size = 1;
+        }
+
+        return coords;
+    }
+
+    private void decodeBlock(byte[] block) throws IOException {
+        final Reader reader = new Reader(block);
+        final int[] lastX = new int[BouncyRecorder.POINTER_SLOTS];
+        final int[] lastY = new int[BouncyRecorder.POINTER_SLOTS];
+        long lastTime = 0;
+
+        while (reader.hasMore()) {
+            final int type = reader.readByte();
+
+            switch (type) {
+                case BouncyRecorder.RECORD_SYNC:
+                    lastTime = reader.readVarLong();
+                    break;
+
+                case BouncyRecorder.RECORD_TOUCH: {
+                    final TouchRecord record = new TouchRecord();
+                    record.mAction = (int) reader.readVarLong();
+                    record.mDownOffset = reader.readVarLong();
+
+                    final int pointerCount = reader.readCount();
+                    record.mPointerIds = new int[pointerCount];
+                    for (int p = 0; p < pointerCount; p++) {
+                        record.mPointerIds[p] = (int) reader.readVarLong();
+                    }
+
+                    final int sampleCount = reader.readCount();
+                    record.mTimes = new long[sampleCount];
+                    record.mX = new int[sampleCount * pointerCount];
+                    record.mY = new int[sampleCount * pointerCount];
+
+                    for (int s = 0; s < sampleCount; s++) {
+                        lastTime += reader.readZigZag();
+                        record.mTimes[s] = lastTime;
+
+                        for (int p = 0; p < pointerCount; p++) {
+                            final int slot = record.mPointerIds[p] & (BouncyRecorder.POINTER_SLOTS - 1);
+                            lastX[slot] += (int) reader.readZigZag();
+                            lastY[slot] += (int) reader.readZigZag();
+                            record.mX[s * pointerCount + p] = lastX[slot];
+                            record.mY[s * pointerCount + p] = lastY[slot];
+                        }
+                    }
+
+                    mTouches.add(record);
+                    break;
+                }
+
+                case BouncyRecorder.RECORD_SCROLL: {
+                    lastTime += reader.readZigZag();
+                    final int dx = (int) reader.readZigZag();
+                    final int dy = (int) reader.readZigZag();
+                    addScroll(lastTime, dx, dy, (int) reader.readVarLong());
+                    break;
+                }
+
+                case BouncyRecorder.RECORD_SPRING:
+                    lastTime += reader.readZigZag();
+                    addSpringValue((int) reader.readZigZag());
+                    break;
+
+                default:
+                    throw new IOException("corrupted trace, record type " + type);
+            }
+        }
+    }
+
+    private void addScroll(long time, int dx, int dy, int state) {
+        if (mScrollCount == mScrollTimes.length) {
+            final int length = mScrollTimes.length * 2;
+            mScrollTimes = Arrays.copyOf(mScrollTimes, length);
+            mScrollDx = Arrays.copyOf(mScrollDx, length);
+            mScrollDy = Arrays.copyOf(mScrollDy, length);
+            mScrollStates = Arrays.copyOf(mScrollStates, length);
+        }
+
+        mScrollTimes[mScrollCount] = time;
+        mScrollDx[mScrollCount] = dx;
+        mScrollDy[mScrollCount] = dy;
+        mScrollStates[mScrollCount] = state;
+        mScrollCount++;
+    }
+
+    private void addSpringValue(int value) {
+        if (mSpringCount == mSpringValues.length) {
+            final int[] values = new int[mSpringValues.length * 2];
+            System.arraycopy(mSpringValues, 0, values, 0, mSpringCount);
+            mSpringValues = values;
+        }
+
+        mSpringValues[mSpringCount++] = value;
+    }
+
+    /**
+     * A recorded touch event. The times are in us, the positions in 1/16 pixel, indexed by
+     * sample * pointerCount + pointer.
+     */
+    private static class TouchRecord {
+        int mAction;
+        long mDownOffset;
+        int[] mPointerIds;
+        long[] mTimes;
+        int[] mX;
+        int[] mY;
+
+        /**
+         * @return the time of the last sample, in ms.
+         */
+        long getEventTime() {
+            return mTimes[mTimes.length - 1] / 1000;
+        }
+    }
+
+    private static class Reader {
+        private final byte[] mBuffer;
+        private int mPos = 0;
+
+        Reader(byte[] buffer) {
+            mBuffer = buffer;
+        }
+
+        boolean hasMore() {
+            return mPos < mBuffer.length;
+        }
+
+        int readByte() throws IOException {
+            if (mPos >= mBuffer.length)
+                throw new IOException("truncated trace");
+
+            return mBuffer[mPos++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+
+            throw new IOException("corrupted trace, varint too long");
+        }
+
+        long readZigZag() throws IOException {
+            final long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readCount() throws IOException {
+            final long count = readVarLong();
+            if (count <= 0 || count > BouncyRecorder.BLOCK_SIZE)
+                throw new IOException("corrupted trace, count " + count);
+
+            return (int) count;
+        }
+    }
+}
@@ -33,7 +33,10 @@ import android.view.animation.DecelerateInterpolator;
 
 /**
  * A smoother scroller which decelerates the scroll speed quadratically.
+ * @deprecated not used by the library anymore, a fling reaching an edge now hands its
+ * velocity to the spring. It will be removed in a future release.
  */
+@Deprecated
 public class DecelerateSmoothScroller extends LinearSmoothScroller {
     private static final float DECELERATE_FACTOR = 2.0f;
     private float mInitialSpeed = 1; // px per ms
@@ -44,7 +47,8 @@ public class DecelerateSmoothScroller extends LinearSmoothScroller {
     private int mForcedHorzSnap = SNAP_TO_ANY;
     private int mForceVertSnap = SNAP_TO_ANY;
 
-    private PointF mScrollVector = new PointF();
+    private final PointF mScrollVector = new PointF();
+    private final DecelerateInterpolator mInterpolator = new DecelerateInterpolator(DECELERATE_FACTOR);
 
     public DecelerateSmoothScroller(Context context) {
         super(context);
@@ -58,7 +62,7 @@ public class DecelerateSmoothScroller extends LinearSmoothScroller {
         final int time = calculateTimeForDeceleration(distance);
 
         if (time > 0) {
-            action.update(-dx, -dy, time, new DecelerateInterpolator(DECELERATE_FACTOR));
+            action.update(-dx, -dy, time, mInterpolator);
         }
     }
 
@@ -109,7 +113,7 @@ public class DecelerateSmoothScroller extends LinearSmoothScroller {
      * </ul>
      */
     public void setScrollVector(PointF vector) {
-        mScrollVector = vector;
+        mScrollVector.set(vector.x, vector.y);
     }
 
     private int getHorizontalSnap() {
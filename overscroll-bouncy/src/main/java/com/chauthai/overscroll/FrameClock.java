@@ -0,0 +1,56 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+
+package com.chauthai.overscroll;
+
+/**
+ * The clock of the frame times, the velocity samples and the episode durations. It reads
+ * {@link System#nanoTime()}, the clock of {@link android.view.Choreographer}, unless it is
+ * replaced to drive the bounce from a fake clock, for example to replay gestures off device.
+ * A replacement must be the clock of the frame times given by the Choreographer.
+ */
+abstract class FrameClock {
+    private static final FrameClock SYSTEM = new FrameClock() {
+        @Override
+        long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private static FrameClock sClock = SYSTEM;
+
+    abstract long nanoTime();
+
+    static long now() {
+        return sClock.nanoTime();
+    }
+
+    /**
+     * @param clock null to go back to {@link System#nanoTime()}.
+     */
+    static void set(FrameClock clock) {
+        sClock = (clock == null)? SYSTEM : clock;
+    }
+}
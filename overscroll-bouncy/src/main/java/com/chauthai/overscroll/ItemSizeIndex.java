@@ -0,0 +1,121 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.util.SparseIntArray;
+
+/**
+ * Incremental index of the item sizes (along the scroll direction) of an adapter.
+ * The sizes are fed as the items are laid out, so estimating the content size costs O(1)
+ * instead of looking up the attached views on every query.
+ */
+class ItemSizeIndex {
+    /**
+     * Exact size of every measured position.
+     */
+    private final SparseIntArray mSizes = new SparseIntArray();
+
+    private long mTotalSize = 0;
+
+    /**
+     * Average size kept from before the last invalidation, used until the items are
+     * measured again.
+     */
+    private double mFallbackAverage = 0;
+
+    /**
+     * Record the size of an item.
+     * @param position position in the original adapter.
+     * @param size in pixels.
+     */
+    void put(int position, int size) {
+        final int index = mSizes.indexOfKey(position);
+
+        if (index >= 0) {
+            mTotalSize += size - mSizes.valueAt(index);
+            mSizes.setValueAt(index, size);
+        } else {
+            mTotalSize += size;
+            mSizes.put(position, size);
+        }
+    }
+
+    /**
+     * Forget the sizes of a range of items whose content has changed.
+     */
+    void invalidate(int positionStart, int itemCount) {
+        for (int position = positionStart; position < positionStart + itemCount; position++) {
+            final int index = mSizes.indexOfKey(position);
+
+            if (index >= 0) {
+                mTotalSize -= mSizes.valueAt(index);
+                mSizes.removeAt(index);
+            }
+        }
+    }
+
+    /**
+     * Forget the sizes of all the positions, for example when items are inserted or removed.
+     * The current average is kept as an estimation until the items are measured again.
+     */
+    void invalidateAll() {
+        if (mSizes.size() > 0) {
+            mFallbackAverage = getAverageSize();
+        }
+
+        mSizes.clear();
+        mTotalSize = 0;
+    }
+
+    /**
+     * Forget everything, for example when the adapter is replaced.
+     */
+    void reset() {
+        mSizes.clear();
+        mTotalSize = 0;
+        mFallbackAverage = 0;
+    }
+
+    /**
+     * @return the average size of the measured items, 0 if nothing has been measured.
+     */
+    double getAverageSize() {
+        if (mSizes.size() == 0)
+            return mFallbackAverage;
+
+        return (double) mTotalSize / mSizes.size();
+    }
+
+    /**
+     * Estimate the total size of the items: the exact size of the measured items plus
+     * the average size for the others.
+     * @param itemCount number of items in the original adapter.
+     * @return the estimated size in pixels, 0 if nothing has been measured.
+     */
+    int estimateContentSize(int itemCount) {
+        final int unmeasured = Math.max(0, itemCount - mSizes.size());
+        return (int) (mTotalSize + unmeasured * getAverageSize());
+    }
+}
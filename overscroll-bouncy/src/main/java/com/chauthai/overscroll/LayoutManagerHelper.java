@@ -0,0 +1,137 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+
+/**
+ * Uniform access to the orientation and the visible positions of the layout managers
+ * supported by the bouncy effect: {@link LinearLayoutManager}, {@link GridLayoutManager}
+ * and {@link StaggeredGridLayoutManager}. The current layout manager of the RecyclerView
+ * is read on every call, so the helper follows {@link RecyclerView#setLayoutManager}.
+ */
+class LayoutManagerHelper {
+    private final RecyclerView mRecyclerView;
+
+    /**
+     * Reused by the staggered grid, one entry per span.
+     */
+    private int[] mSpanPositions = new int[0];
+
+    LayoutManagerHelper(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
+
+    static boolean isSupported(RecyclerView.LayoutManager layout) {
+        return layout instanceof LinearLayoutManager || layout instanceof StaggeredGridLayoutManager;
+    }
+
+    RecyclerView.LayoutManager getLayoutManager() {
+        return mRecyclerView.getLayoutManager();
+    }
+
+    boolean isVertical() {
+        final RecyclerView.LayoutManager layout = mRecyclerView.getLayoutManager();
+
+        if (layout instanceof StaggeredGridLayoutManager)
+            return ((StaggeredGridLayoutManager) layout).getOrientation() == StaggeredGridLayoutManager.VERTICAL;
+
+        return ((LinearLayoutManager) layout).getOrientation() == LinearLayoutManager.VERTICAL;
+    }
+
+    boolean getReverseLayout() {
+        final RecyclerView.LayoutManager layout = mRecyclerView.getLayoutManager();
+
+        if (layout instanceof StaggeredGridLayoutManager)
+            return ((StaggeredGridLayoutManager) layout).getReverseLayout();
+
+        return ((LinearLayoutManager) layout).getReverseLayout();
+    }
+
+    /**
+     * @return number of columns (or rows for a horizontal grid), 1 for a list.
+     */
+    int getSpanCount() {
+        final RecyclerView.LayoutManager layout = mRecyclerView.getLayoutManager();
+
+        if (layout instanceof StaggeredGridLayoutManager)
+            return ((StaggeredGridLayoutManager) layout).getSpanCount();
+
+        if (layout instanceof GridLayoutManager)
+            return ((GridLayoutManager) layout).getSpanCount();
+
+        return 1;
+    }
+
+    /**
+     * @return the smallest visible adapter position, over all the spans of a staggered grid.
+     */
+    int findFirstVisibleItemPosition() {
+        final RecyclerView.LayoutManager layout = mRecyclerView.getLayoutManager();
+
+        if (!(layout instanceof StaggeredGridLayoutManager))
+            return ((LinearLayoutManager) layout).findFirstVisibleItemPosition();
+
+        final int[] positions = ((StaggeredGridLayoutManager) layout).findFirstVisibleItemPositions(
+                getSpanPositions((StaggeredGridLayoutManager) layout));
+
+        int first = RecyclerView.NO_POSITION;
+        for (int position : positions) {
+            if (position != RecyclerView.NO_POSITION && (first == RecyclerView.NO_POSITION || position < first)) {
+                first = position;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * @return the largest visible adapter position, over all the spans of a staggered grid.
+     */
+    int findLastVisibleItemPosition() {
+        final RecyclerView.LayoutManager layout = mRecyclerView.getLayoutManager();
+
+        if (!(layout instanceof StaggeredGridLayoutManager))
+            return ((LinearLayoutManager) layout).findLastVisibleItemPosition();
+
+        final int[] positions = ((StaggeredGridLayoutManager) layout).findLastVisibleItemPositions(
+                getSpanPositions((StaggeredGridLayoutManager) layout));
+
+        int last = RecyclerView.NO_POSITION;
+        for (int position : positions) {
+            last = Math.max(last, position);
+        }
+        return last;
+    }
+
+    private int[] getSpanPositions(StaggeredGridLayoutManager layout) {
+        if (mSpanPositions.length != layout.getSpanCount()) {
+            mSpanPositions = new int[layout.getSpanCount()];
+        }
+        return mSpanPositions;
+    }
+}
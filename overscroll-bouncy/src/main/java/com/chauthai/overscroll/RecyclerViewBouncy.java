@@ -27,18 +27,49 @@ package com.chauthai.overscroll;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.support.annotation.Nullable;
-import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Display;
+import android.view.WindowManager;
 
 /**
  * A RecyclerView which supports iOS-like over-scroll style.
  */
 public class RecyclerViewBouncy extends RecyclerView {
+    /**
+     * The start of the list, the top or the left unless the layout is reversed.
+     */
+    public static final int EDGE_START = 0;
+
+    /**
+     * The end of the list, the bottom or the right unless the layout is reversed.
+     */
+    public static final int EDGE_END = 1;
+
+    public interface OnApproachEdgeListener {
+        /**
+         * Called once when the list comes within the lead of an edge, and again only after
+         * it has moved away from it, for example to load the next page early.
+         * @param edge {@link #EDGE_START} or {@link #EDGE_END}.
+         */
+        void onApproachEdge(int edge);
+    }
+
+    private BouncyController mController;
+
+    /**
+     * The adapter which wraps {@link #mOriginalAdapter} in {@link BouncyConfig#BOUNCE_MODE_GAP},
+     * null in {@link BouncyConfig#BOUNCE_MODE_TRANSLATION}.
+     */
     private BouncyAdapter mBouncyAdapter;
     private Adapter mOriginalAdapter;
     private BouncyConfig mConfig = BouncyConfig.DEFAULT;
+    private BouncyMetrics mMetrics;
+    private BouncyRecorder mRecorder;
+    private OnApproachEdgeListener mApproachListener;
+    private int mApproachLeadItems = -1;
+    private int mApproachLeadPixels = -1;
 
     public RecyclerViewBouncy(Context context) {
         super(context);
@@ -57,43 +88,263 @@ public class RecyclerViewBouncy extends RecyclerView {
 
     @Override
     public void setAdapter(Adapter adapter) {
-        if (mOriginalAdapter != null) {
+        final boolean retarget = wrapAdapter(adapter);
+        super.setAdapter(mBouncyAdapter != null? mBouncyAdapter : adapter);
+
+        if (mBouncyAdapter != null) {
+            adapter.registerAdapterDataObserver(mAdapterDataObserver);
+        }
+
+        // a new BouncyAdapter hides the header by itself
+        if (retarget) {
+            scrollToPosition(0);
+        }
+    }
+
+    @Override
+    public void swapAdapter(Adapter adapter, boolean removeAndRecycleExistingViews) {
+        wrapAdapter(adapter);
+        super.swapAdapter(mBouncyAdapter != null? mBouncyAdapter : adapter, removeAndRecycleExistingViews);
+
+        if (mBouncyAdapter != null) {
+            adapter.registerAdapterDataObserver(mAdapterDataObserver);
+        }
+    }
+
+    /**
+     * Prepare the controller for a new adapter and, in {@link BouncyConfig#BOUNCE_MODE_GAP},
+     * wrap the adapter inside the BouncyAdapter. The current controller and BouncyAdapter are
+     * kept and only re-targeted, unless the stable ids setting changes.
+     * @return true if the current BouncyAdapter is re-targeted.
+     */
+    private boolean wrapAdapter(Adapter adapter) {
+        if (mOriginalAdapter != null && mBouncyAdapter != null) {
             mOriginalAdapter.unregisterAdapterDataObserver(mAdapterDataObserver);
         }
 
-        // wrap the original adapter inside the BouncyAdapter
         mOriginalAdapter = adapter;
-        mBouncyAdapter = new BouncyAdapter(getContext(), this, adapter, mConfig);
 
-        super.setAdapter(mBouncyAdapter);
-        adapter.registerAdapterDataObserver(mAdapterDataObserver);
+        if (adapter == null) {
+            if (mController != null) {
+                mController.detach();
+                mController = null;
+            }
+            dropBouncyAdapter();
+            return false;
+        }
+
+        if (mController == null) {
+            mController = new BouncyController(getContext(), this, mConfig);
+            mController.setMetrics(mMetrics);
+            mController.setRecorder(mRecorder);
+            mController.setOnApproachEdgeListener(mApproachListener, mApproachLeadItems, mApproachLeadPixels);
+        }
+
+        // the adapter is installed as is
+        if (mConfig.bounceMode == BouncyConfig.BOUNCE_MODE_TRANSLATION) {
+            dropBouncyAdapter();
+            mController.resetState();
+            return false;
+        }
+
+        if (mBouncyAdapter != null && mBouncyAdapter.hasStableIds() == adapter.hasStableIds()) {
+            mBouncyAdapter.setAdapter(adapter);
+            return true;
+        }
+
+        dropBouncyAdapter();
+        mController.resetState();
+        mBouncyAdapter = new BouncyAdapter(getContext(), this, adapter, mController);
+        mController.setGapAdapter(mBouncyAdapter);
+        return false;
     }
 
-    @Override
-    public void swapAdapter(Adapter adapter, boolean removeAndRecycleExistingViews) {
+    /**
+     * Forget the BouncyAdapter, giving a grid its own span size lookup back.
+     */
+    private void dropBouncyAdapter() {
+        if (mBouncyAdapter != null) {
+            mBouncyAdapter.removeSpanSizeLookup();
+            mBouncyAdapter = null;
+        }
+    }
+
+    /**
+     * Change the configuration of the over-scroll. The tension, friction, physics, gap limit
+     * and speed factor are applied to the live list, including to a bounce which is already
+     * moving, without touching the adapter. Changing the bounce mode installs the adapter
+     * again, since it has to be wrapped or unwrapped.
+     */
+    public void setBouncyConfig(BouncyConfig config) {
+        if (config == null)
+            throw new IllegalArgumentException("config must not be null");
+
+        final boolean modeChanged = (config.bounceMode != mConfig.bounceMode);
+        mConfig = config;
+
+        if (mController == null)
+            return;
+
+        if (!modeChanged) {
+            mController.setConfig(config);
+            return;
+        }
+
+        final Adapter adapter = mOriginalAdapter;
+        setAdapter(null);
         setAdapter(adapter);
     }
 
+    public BouncyConfig getBouncyConfig() {
+        return mConfig;
+    }
+
+    /**
+     * Report the frame-level metrics of every over-scroll episode. The metrics are disabled
+     * by default and cost nothing until a listener is set.
+     * @param listener null to disable the metrics.
+     */
+    public void setOnBounceMetricsListener(BouncyMetrics.Listener listener) {
+        mMetrics = (listener == null)? null : new BouncyMetrics(listener, getFrameBudgetNanos());
+
+        if (mController != null) {
+            mController.setMetrics(mMetrics);
+        }
+    }
+
     /**
-     * @param layout only supports LinearLayoutManager
+     * Be notified when the list comes near one of its edges. It is computed from the edge
+     * state the list already tracks on every scroll and layout, so the listener does not
+     * need to query the visible positions itself.
+     * @param listener null to disable the callback.
+     * @param leadItems the edge is approached when at most this many items are left before
+     *                  it, -1 to only use the pixel lead.
+     * @param leadPixels the edge is approached when at most this many pixels are left before
+     *                   it, estimated from the size of the outermost visible item. -1 to only
+     *                   use the item lead.
+     */
+    public void setOnApproachEdgeListener(OnApproachEdgeListener listener, int leadItems, int leadPixels) {
+        mApproachListener = listener;
+        mApproachLeadItems = leadItems;
+        mApproachLeadPixels = leadPixels;
+
+        if (mController != null) {
+            mController.setOnApproachEdgeListener(listener, leadItems, leadPixels);
+        }
+    }
+
+    /**
+     * Record the touch events, scroll callbacks and spring values of the list, to replay them
+     * later with {@link BouncyReplayer}. Recording is disabled by default.
+     * @param recorder null to stop recording.
+     */
+    public void setBouncyRecorder(BouncyRecorder recorder) {
+        mRecorder = recorder;
+
+        if (mController != null) {
+            mController.setRecorder(recorder);
+        }
+    }
+
+    /**
+     * @return the vsync period of the default display.
+     */
+    private long getFrameBudgetNanos() {
+        float refreshRate = 60;
+
+        final WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+        if (windowManager != null) {
+            final Display display = windowManager.getDefaultDisplay();
+            if (display != null && display.getRefreshRate() >= 1) {
+                refreshRate = display.getRefreshRate();
+            }
+        }
+
+        return (long) (1000000000L / refreshRate);
+    }
+
+    /**
+     * @param layout only supports LinearLayoutManager, GridLayoutManager and
+     *               StaggeredGridLayoutManager
      */
     @Override
     public void setLayoutManager(LayoutManager layout) {
-        if (!(layout instanceof LinearLayoutManager)) {
-            throw new RuntimeException("RecyclerView must use LinearLayoutManager");
+        if (!LayoutManagerHelper.isSupported(layout)) {
+            throw new RuntimeException("RecyclerView must use LinearLayoutManager, GridLayoutManager " +
+                    "or StaggeredGridLayoutManager");
         }
 
         super.setLayoutManager(layout);
+
+        if (mController != null) {
+            mController.onLayoutManagerChanged();
+        }
+
+        if (mBouncyAdapter != null) {
+            mBouncyAdapter.onLayoutManagerChanged();
+        }
     }
 
     @Override
     public void scrollToPosition(int position) {
-        super.scrollToPosition(position + 1);
+        super.scrollToPosition(toLayoutPosition(position));
     }
 
     @Override
     public void smoothScrollToPosition(int position) {
-        super.smoothScrollToPosition(position + 1);
+        super.smoothScrollToPosition(toLayoutPosition(position));
+    }
+
+    /**
+     * @param position position in the original adapter.
+     * @return position in the adapter installed in the RecyclerView, which starts with
+     * the header gap in {@link BouncyConfig#BOUNCE_MODE_GAP}.
+     */
+    private int toLayoutPosition(int position) {
+        return (mConfig.bounceMode == BouncyConfig.BOUNCE_MODE_GAP)? position + 1 : position;
+    }
+
+    /**
+     * The velocity of the flings started by the RecyclerView itself is given to the controller,
+     * instead of an OnFlingListener which would conflict with a SnapHelper.
+     */
+    @Override
+    public boolean fling(int velocityX, int velocityY) {
+        final boolean started = super.fling(velocityX, velocityY);
+
+        if (started && mController != null) {
+            mController.onFling(velocityX, velocityY);
+        }
+
+        return started;
+    }
+
+    @Override
+    protected void onMeasure(int widthSpec, int heightSpec) {
+        // the span size lookup of a grid may have been replaced since the last pass
+        if (mBouncyAdapter != null) {
+            mBouncyAdapter.updateSpanSizeLookup();
+        }
+
+        super.onMeasure(widthSpec, heightSpec);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+
+        if (mController != null) {
+            mController.onLayout();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        if (mController != null) {
+            mController.onDetachedFromWindow();
+        }
     }
 
     private void init(Context context, AttributeSet attributeSet) {
@@ -132,6 +383,16 @@ public class RecyclerViewBouncy extends RecyclerView {
                         R.styleable.RecyclerViewBouncy_maxAdapterSizeToEstimate, 0));
             }
 
+            if (a.hasValue(R.styleable.RecyclerViewBouncy_physics)) {
+                builder.setPhysics(a.getInt(R.styleable.RecyclerViewBouncy_physics,
+                        BouncyConfig.PHYSICS_SPRING));
+            }
+
+            if (a.hasValue(R.styleable.RecyclerViewBouncy_bounceMode)) {
+                builder.setBounceMode(a.getInt(R.styleable.RecyclerViewBouncy_bounceMode,
+                        BouncyConfig.BOUNCE_MODE_GAP));
+            }
+
             mConfig = builder.build();
         }
     }
@@ -0,0 +1,252 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * A reference-counted frame loop shared by all the {@link SpringScroller}s of a thread.
+ * Only the scrollers which are moving are registered in the loop, and the frame callback
+ * is only posted while there is at least one of them, so there is a single frame callback
+ * per UI thread no matter how many lists are on screen.
+ *
+ * The springs are sampled at the vsync time of the frame being drawn, not at the time the
+ * callback happens to run, so a late callback or a dropped frame does not change the
+ * trajectory: the analytic solvers simply evaluate a later time.
+ */
+class SharedSpringSystem {
+    private static final ThreadLocal<SharedSpringSystem> sInstance = new ThreadLocal<SharedSpringSystem>();
+
+    private static final long DEFAULT_FRAME_INTERVAL = 1000000000L / 60; // ns
+
+    private final ArrayList<SpringScroller> mActiveScrollers = new ArrayList<SpringScroller>();
+    private final FrameSource mFrameSource;
+
+    private int mRefCount = 0;
+    private boolean mRunning = false;
+
+    /**
+     * Refresh interval detected from the frame times, see {@link #updateFrameInterval(long)}.
+     */
+    private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL;
+    private long mLastFrameTimeNanos = 0;
+    private long mLastFrameDeltaNanos = 0;
+
+    private SharedSpringSystem() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameSource = new ChoreographerFrameSource(this);
+        } else {
+            mFrameSource = new HandlerFrameSource(this);
+        }
+    }
+
+    /**
+     * Get the spring system of the current thread and increase its reference count.
+     * Each call must be balanced by a call to {@link #release()}.
+     */
+    static SharedSpringSystem acquire() {
+        SharedSpringSystem shared = sInstance.get();
+
+        if (shared == null) {
+            shared = new SharedSpringSystem();
+            sInstance.set(shared);
+        }
+
+        shared.mRefCount++;
+        return shared;
+    }
+
+    /**
+     * Decrease the reference count of the current thread's spring system. The system is
+     * dropped once nobody uses it anymore.
+     */
+    static void release() {
+        final SharedSpringSystem shared = sInstance.get();
+
+        if (shared == null)
+            return;
+
+        shared.mRefCount--;
+
+        if (shared.mRefCount <= 0) {
+            shared.mActiveScrollers.clear();
+            shared.stop();
+            sInstance.remove();
+        }
+    }
+
+    /**
+     * Register a moving scroller in the frame loop. The scroller stays registered until
+     * {@link SpringScroller#doFrame(long, long)} returns false.
+     */
+    void activate(SpringScroller scroller) {
+        if (!mActiveScrollers.contains(scroller)) {
+            mActiveScrollers.add(scroller);
+        }
+
+        if (!mRunning) {
+            mRunning = true;
+            mFrameSource.postFrame();
+        }
+    }
+
+    /**
+     * Remove a scroller from the frame loop immediately.
+     */
+    void deactivate(SpringScroller scroller) {
+        mActiveScrollers.remove(scroller);
+
+        if (mActiveScrollers.isEmpty()) {
+            stop();
+        }
+    }
+
+    /**
+     * @return the refresh interval of the display, in nanoseconds.
+     */
+    long getFrameIntervalNanos() {
+        return mFrameIntervalNanos;
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        if (!mRunning)
+            return;
+
+        updateFrameInterval(frameTimeNanos);
+
+        // iterate backward so that the scrollers can be removed while iterating,
+        // scrollers registered during this frame will be updated on the next one.
+        for (int i = mActiveScrollers.size() - 1; i >= 0; i--) {
+            if (i >= mActiveScrollers.size())
+                continue;
+
+            final SpringScroller scroller = mActiveScrollers.get(i);
+            if (!scroller.doFrame(frameTimeNanos, mFrameIntervalNanos)) {
+                mActiveScrollers.remove(scroller);
+            }
+        }
+
+        if (mActiveScrollers.isEmpty()) {
+            stop();
+        } else {
+            mFrameSource.postFrame();
+        }
+    }
+
+    /**
+     * Two consecutive frames of the same length give the refresh interval, so it follows the
+     * 60, 90 or 120 Hz of the display, while a single longer frame is a dropped frame and
+     * is ignored.
+     */
+    private void updateFrameInterval(long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            final long delta = frameTimeNanos - mLastFrameTimeNanos;
+
+            if (delta > 0 && mLastFrameDeltaNanos > 0
+                    && Math.abs(delta - mLastFrameDeltaNanos) * 5 < mLastFrameDeltaNanos) {
+                mFrameIntervalNanos = (delta + mLastFrameDeltaNanos) / 2;
+            }
+
+            mLastFrameDeltaNanos = delta;
+        }
+
+        mLastFrameTimeNanos = frameTimeNanos;
+    }
+
+    private void stop() {
+        mRunning = false;
+        mFrameSource.cancel();
+
+        // the pause until the next start is not a frame
+        mLastFrameTimeNanos = 0;
+        mLastFrameDeltaNanos = 0;
+    }
+
+    private static abstract class FrameSource {
+        abstract void postFrame();
+        abstract void cancel();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameSource extends FrameSource implements Choreographer.FrameCallback {
+        private final SharedSpringSystem mSystem;
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        ChoreographerFrameSource(SharedSpringSystem system) {
+            mSystem = system;
+        }
+
+        @Override
+        void postFrame() {
+            mChoreographer.removeFrameCallback(this);
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        void cancel() {
+            mChoreographer.removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mSystem.doFrame(frameTimeNanos);
+        }
+    }
+
+    /**
+     * Frame source for the platforms without {@link Choreographer}, paced by the detected
+     * refresh interval. There is no vsync time, the frame time is read when the message runs.
+     */
+    private static class HandlerFrameSource extends FrameSource implements Runnable {
+        private final SharedSpringSystem mSystem;
+        private final Handler mHandler = new Handler(Looper.myLooper());
+
+        HandlerFrameSource(SharedSpringSystem system) {
+            mSystem = system;
+        }
+
+        @Override
+        void postFrame() {
+            mHandler.removeCallbacks(this);
+            mHandler.postDelayed(this, mSystem.getFrameIntervalNanos() / 1000000L);
+        }
+
+        @Override
+        void cancel() {
+            mHandler.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            mSystem.doFrame(FrameClock.now());
+        }
+    }
+}
@@ -24,103 +24,292 @@
 
 package com.chauthai.overscroll;
 
-import com.facebook.rebound.SimpleSpringListener;
-import com.facebook.rebound.Spring;
-import com.facebook.rebound.SpringConfig;
-import com.facebook.rebound.SpringSystem;
-
 /**
  * A class which simulate a spring system with parameterizable tension and friction.
+ * The springs are driven by a frame loop shared by all the scrollers of the thread.
  */
-public class SpringScroller extends SimpleSpringListener {
-    private static final SpringConfig DEFAULT_CONFIG = new SpringConfig(1000, 200);
+public class SpringScroller implements BouncePhysics {
+    private static final double DEFAULT_TENSION = 1000;
+    private static final double DEFAULT_FRICTION = 200;
+
+    /**
+     * Only drive the horizontal spring.
+     */
+    public static final int AXIS_X = 1;
+
+    /**
+     * Only drive the vertical spring.
+     */
+    public static final int AXIS_Y = 1 << 1;
+
+    /**
+     * Drive both horizontal and vertical springs.
+     */
+    public static final int AXIS_BOTH = AXIS_X | AXIS_Y;
 
-    private final Spring mSpringX;
-    private final Spring mSpringY;
+    private SpringSolver mSpringX;
+    private SpringSolver mSpringY;
 
-    private SpringScrollerListener mListener;
+    private SharedSpringSystem mSpringSystem;
 
-    public interface SpringScrollerListener {
-        void onSpringUpdate(int currX, int currY);
-        void onSpringAtRest();
+    /**
+     * Time origin of the springs, on the {@link FrameClock} like the frame times.
+     * A new scroll is aligned to the vsync grid on its first frame, mStartPending is true
+     * until then and mRequestTime is the time it was started.
+     */
+    private long mStartTime;
+    private long mRequestTime;
+    private boolean mStartPending = false;
+
+    private BouncePhysics.Listener mListener;
+
+    public interface SpringScrollerListener extends BouncePhysics.Listener {
     }
 
     public SpringScroller(double tension, double friction, SpringScrollerListener listener) {
-        final SpringSystem mSpringSystem = SpringSystem.create();
+        this(tension, friction, AXIS_BOTH, listener);
+    }
 
-        SpringConfig config;
+    public SpringScroller(double tension, double friction, int axes, SpringScrollerListener listener) {
+        this(tension, friction, axes, BouncyConfig.PHYSICS_SPRING, listener);
+    }
+
+    /**
+     * @param axes the springs to drive, one of {@link #AXIS_X}, {@link #AXIS_Y} or {@link #AXIS_BOTH}.
+     *             With a single axis only one spring is created, so the listener is notified
+     *             exactly once per frame.
+     * @param physics {@link BouncyConfig#PHYSICS_SPRING} to solve the springs on every frame, or
+     *                {@link BouncyConfig#PHYSICS_TRAJECTORY_CACHE} to read them from trajectories
+     *                shared by all the scrollers with the same tension and friction.
+     */
+    SpringScroller(double tension, double friction, int axes, int physics,
+                   BouncePhysics.Listener listener) {
         if (tension < 0 || friction < 0) {
-            config = DEFAULT_CONFIG;
-        } else {
-            config = new SpringConfig(tension, friction);
+            tension = DEFAULT_TENSION;
+            friction = DEFAULT_FRICTION;
         }
 
-        mSpringX = mSpringSystem
-                .createSpring()
-                .setSpringConfig(config);
-
-        mSpringY = mSpringSystem
-                .createSpring()
-                .setSpringConfig(config);
-
-        mSpringX.addListener(this);
-        mSpringY.addListener(this);
+        if ((axes & AXIS_BOTH) == 0)
+            throw new IllegalArgumentException("invalid axes: " + axes);
 
+        mSpringX = (axes & AXIS_X) != 0? createSolver(tension, friction, physics) : null;
+        mSpringY = (axes & AXIS_Y) != 0? createSolver(tension, friction, physics) : null;
         mListener = listener;
     }
 
     /**
      * Set vertical and horizontal distances. It will scroll back to 0.
+     * The distance of an axis which is not driven by this scroller is ignored.
      * @param distanceX vertical distance.
      * @param distanceY horizontal distance.
      */
+    @Override
     public void startScroll(int distanceX, int distanceY) {
-        mSpringX.setCurrentValue(distanceX);
-        mSpringY.setCurrentValue(distanceY);
-        mSpringX.setEndValue(0);
-        mSpringY.setEndValue(0);
+        startScroll(distanceX, distanceY, 0, 0);
     }
 
+    /**
+     * Set vertical and horizontal distances and velocities. It will scroll back to 0.
+     * @param velocityX horizontal velocity, in pixels per second.
+     * @param velocityY vertical velocity, in pixels per second.
+     */
+    @Override
+    public void startScroll(int distanceX, int distanceY, float velocityX, float velocityY) {
+        if (mSpringX != null)
+            mSpringX.start(distanceX, velocityX);
+        if (mSpringY != null)
+            mSpringY.start(distanceY, velocityY);
+
+        mRequestTime = FrameClock.now();
+        mStartPending = true;
+        activate();
+    }
+
+    @Override
     public void stopScroll() {
-        if (!mSpringX.isAtRest())
+        if (mSpringX != null)
             mSpringX.setAtRest();
-        if (!mSpringY.isAtRest())
+        if (mSpringY != null)
             mSpringY.setAtRest();
+
+        if (mSpringSystem != null) {
+            mSpringSystem.deactivate(this);
+        }
+    }
+
+    @Override
+    public void setConfig(double tension, double friction, int physics) {
+        if (tension < 0 || friction < 0) {
+            tension = DEFAULT_TENSION;
+            friction = DEFAULT_FRICTION;
+        }
+
+        rebase();
+        mSpringX = replaceSolver(mSpringX, tension, friction, physics);
+        mSpringY = replaceSolver(mSpringY, tension, friction, physics);
+        activate();
     }
 
+    @Override
     public boolean isAtRest() {
-        return mSpringX.isAtRest() && mSpringY.isAtRest();
+        return (mSpringX == null || mSpringX.isAtRest()) && (mSpringY == null || mSpringY.isAtRest());
     }
 
+    @Override
     public int getCurrX() {
-        return (int) Math.round(mSpringX.getCurrentValue());
+        return mSpringX == null? 0 : (int) Math.round(mSpringX.getPosition());
     }
 
+    @Override
     public int getCurrY() {
-        return (int) Math.round(mSpringY.getCurrentValue());
+        return mSpringY == null? 0 : (int) Math.round(mSpringY.getPosition());
     }
 
+    /**
+     * Change the horizontal distance without resetting the velocity.
+     */
     public void setCurrX(int distanceX) {
-        mSpringX.setCurrentValue(distanceX, false);
-        mSpringX.setEndValue(0);
+        if (mSpringX != null) {
+            rebase();
+            mSpringX.start(distanceX, mSpringX.getVelocity());
+            activate();
+        }
     }
 
+    /**
+     * Change the vertical distance without resetting the velocity.
+     */
     public void setCurrY(int distanceY) {
-        mSpringY.setCurrentValue(distanceY, false);
-        mSpringY.setEndValue(0);
+        if (mSpringY != null) {
+            rebase();
+            mSpringY.start(distanceY, mSpringY.getVelocity());
+            activate();
+        }
     }
 
+    /**
+     * Remove the scroller from the shared spring system of the thread. It is registered
+     * again the next time the scroller is used.
+     */
     @Override
-    public void onSpringUpdate(Spring spring) {
+    public void release() {
+        if (mSpringSystem == null)
+            return;
+
+        stopScroll();
+        mSpringSystem = null;
+        SharedSpringSystem.release();
+    }
+
+    /**
+     * Called by {@link SharedSpringSystem} on every frame while the scroller is moving.
+     * @param frameTimeNanos vsync time of the frame, on the {@link FrameClock}.
+     * @param frameIntervalNanos refresh interval of the display.
+     * @return true if the scroller is still moving.
+     */
+    boolean doFrame(long frameTimeNanos, long frameIntervalNanos) {
+        if (isAtRest())
+            return false;
+
+        if (mStartPending) {
+            mStartPending = false;
+            mStartTime = alignStartTime(frameTimeNanos, frameIntervalNanos);
+        }
+
+        final double time = Math.max(0, frameTimeNanos - mStartTime) / 1000000000.0;
+
+        if (mSpringX != null)
+            mSpringX.evaluate(time);
+        if (mSpringY != null)
+            mSpringY.evaluate(time);
+
         if (mListener != null) {
             mListener.onSpringUpdate(getCurrX(), getCurrY());
         }
+
+        if (isAtRest()) {
+            if (mListener != null) {
+                mListener.onSpringAtRest();
+            }
+            return false;
+        }
+
+        return true;
     }
 
-    @Override
-    public void onSpringAtRest(Spring spring) {
-        if (mListener != null && isAtRest()) {
-            mListener.onSpringAtRest();
+    private static SpringSolver createSolver(double tension, double friction, int physics) {
+        switch (physics) {
+            case BouncyConfig.PHYSICS_SPRING:
+                return new DampedSpring(tension, friction);
+            case BouncyConfig.PHYSICS_TRAJECTORY_CACHE:
+                return new TrajectorySpring(tension, friction);
+        }
+        throw new IllegalArgumentException("unknown physics: " + physics);
+    }
+
+    /**
+     * Create a solver with new parameters which continues from the state of the given one.
+     * @return null if spring is null.
+     */
+    private static SpringSolver replaceSolver(SpringSolver spring, double tension, double friction,
+                                              int physics) {
+        if (spring == null)
+            return null;
+
+        final SpringSolver solver = createSolver(tension, friction, physics);
+        if (!spring.isAtRest()) {
+            solver.start(spring.getPosition(), spring.getVelocity());
+        }
+        return solver;
+    }
+
+    /**
+     * The scroll started at mRequestTime, somewhere within the frame before the first one
+     * it is drawn in, possibly several frames before if frames were dropped. Its time origin
+     * is set to the vsync of that frame, so the first frame draws the springs one or more
+     * whole intervals after their starting state.
+     */
+    private long alignStartTime(long frameTimeNanos, long frameIntervalNanos) {
+        final long elapsed = frameTimeNanos - mRequestTime;
+        final long frames = Math.max(1, (elapsed + frameIntervalNanos - 1) / frameIntervalNanos);
+        return frameTimeNanos - frames * frameIntervalNanos;
+    }
+
+    /**
+     * Move the time origin of the springs to now, keeping their current states.
+     */
+    private void rebase() {
+        // not drawn yet, the springs are still in their starting states
+        if (mStartPending)
+            return;
+
+        final long now = FrameClock.now();
+        final double time = Math.max(0, now - mStartTime) / 1000000000.0;
+
+        if (mSpringX != null && !mSpringX.isAtRest()) {
+            mSpringX.evaluate(time);
+            mSpringX.start(mSpringX.getPosition(), mSpringX.getVelocity());
+        }
+
+        if (mSpringY != null && !mSpringY.isAtRest()) {
+            mSpringY.evaluate(time);
+            mSpringY.start(mSpringY.getPosition(), mSpringY.getVelocity());
         }
+
+        mStartTime = now;
+    }
+
+    /**
+     * Register the scroller in the shared spring system if it is moving.
+     */
+    private void activate() {
+        if (isAtRest())
+            return;
+
+        if (mSpringSystem == null) {
+            mSpringSystem = SharedSpringSystem.acquire();
+        }
+
+        mSpringSystem.activate(this);
     }
 }
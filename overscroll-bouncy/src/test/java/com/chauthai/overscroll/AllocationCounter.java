@@ -0,0 +1,180 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes allocated by the current thread in the spans between {@link #begin()} and
+ * {@link #end()}, from the allocation counter of the JVM.
+ * <p>
+ * Reading that counter may allocate by itself, so this cost is measured once and taken out
+ * of every span. The code around a call which is known to allocate, such as a shim of
+ * Robolectric which stands in for the platform, can exclude it with {@link #pause()} and
+ * {@link #resume()}.
+ */
+class AllocationCounter {
+    private static final int CALIBRATION_READS = 32;
+
+    /**
+     * The counter of the span running on the test thread, the one paused by {@link #pause()}.
+     */
+    private static AllocationCounter sActive;
+
+    private final com.sun.management.ThreadMXBean mThreadBean;
+    private final long mThreadId;
+    private final long mReadBytes;
+
+    private long mSpanStart = 0;
+    private long mPauseStart = 0;
+    private long mPausedBytes = 0;
+    private int mPauseDepth = 0;
+    private int mPauses = 0;
+
+    private long mBytes = 0;
+    private int mSpans = 0;
+    private long mMaxSpanBytes = 0;
+
+    AllocationCounter() {
+        if (!isSupported())
+            throw new IllegalStateException("allocation counting is not supported by this JVM");
+
+        mThreadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        mThreadId = Thread.currentThread().getId();
+        mReadBytes = calibrate();
+    }
+
+    /**
+     * @return true if the JVM counts the bytes allocated by each thread.
+     */
+    static boolean isSupported() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return false;
+
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported())
+            return false;
+
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Start counting. Spans do not nest.
+     */
+    void begin() {
+        if (sActive != null)
+            throw new IllegalStateException("a span is already being counted");
+
+        sActive = this;
+        mPausedBytes = 0;
+        mPauseDepth = 0;
+        mPauses = 0;
+        mSpanStart = read();
+    }
+
+    /**
+     * Stop counting and add the bytes allocated since {@link #begin()}.
+     */
+    void end() {
+        final long spanEnd = read();
+        sActive = null;
+
+        // every read after the start has been counted, the one of each pause in the span
+        final long bytes = Math.max(0, spanEnd - mSpanStart - mPausedBytes - mReadBytes * (1 + mPauses));
+        mBytes += bytes;
+        mSpans++;
+        mMaxSpanBytes = Math.max(mMaxSpanBytes, bytes);
+    }
+
+    /**
+     * Stop counting the span being counted, if any, until {@link #resume()}. Pauses nest.
+     */
+    static void pause() {
+        final AllocationCounter counter = sActive;
+        if (counter != null && counter.mPauseDepth++ == 0) {
+            counter.mPauseStart = counter.read();
+        }
+    }
+
+    static void resume() {
+        final AllocationCounter counter = sActive;
+        if (counter != null && --counter.mPauseDepth == 0) {
+            // the read of the pause is counted, the one of the resume is not
+            counter.mPausedBytes += counter.read() - counter.mPauseStart;
+            counter.mPauses++;
+        }
+    }
+
+    /**
+     * Forget the spans counted so far.
+     */
+    void reset() {
+        mBytes = 0;
+        mSpans = 0;
+        mMaxSpanBytes = 0;
+    }
+
+    /**
+     * @return bytes allocated in the spans counted since the last {@link #reset()}.
+     */
+    long getBytes() {
+        return mBytes;
+    }
+
+    int getSpanCount() {
+        return mSpans;
+    }
+
+    long getMaxSpanBytes() {
+        return mMaxSpanBytes;
+    }
+
+    @Override
+    public String toString() {
+        return mBytes + " bytes in " + mSpans + " spans, " + mMaxSpanBytes + " at most";
+    }
+
+    private long read() {
+        return mThreadBean.getThreadAllocatedBytes(mThreadId);
+    }
+
+    /**
+     * @return the bytes allocated by a read of the counter, the smallest difference between
+     * two consecutive reads.
+     */
+    private long calibrate() {
+        long readBytes = Long.MAX_VALUE;
+        long previous = read();
+
+        for (int i = 0; i < CALIBRATION_READS; i++) {
+            final long current = read();
+            readBytes = Math.min(readBytes, current - previous);
+            previous = current;
+        }
+        return readBytes;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that a running bounce does not allocate: the frames of the shared spring system,
+ * with the scrollBy calls and the onScrolled handler they run, and the touch events of a
+ * drag over the gap. A first gesture warms up the view pools, the lazily created physics and
+ * the classes, then the same gesture is counted.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23, shadows = {ShadowVsyncChoreographer.class,
+        ShadowPlatformOverScroller.class, ShadowUncountedViewGroup.class})
+public class BounceAllocationTest {
+    private static final int ITEM_COUNT = 50;
+
+    private BounceHarness mHarness;
+
+    @Before
+    public void setUp() {
+        assumeTrue(AllocationCounter.isSupported());
+        mHarness = new BounceHarness(BouncyConfig.DEFAULT, ITEM_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        if (mHarness != null) {
+            mHarness.close();
+        }
+    }
+
+    @Test
+    public void springFramesDoNotAllocate() {
+        final int[] position = new int[2];
+        final SpringScroller scroller = new SpringScroller(1000, 200,
+                new SpringScroller.SpringScrollerListener() {
+                    @Override
+                    public void onSpringUpdate(int currX, int currY) {
+                        position[0] = currX;
+                        position[1] = currY;
+                    }
+
+                    @Override
+                    public void onSpringAtRest() {
+                    }
+                });
+
+        scroller.startScroll(200, 300, 0, 2000);
+        mHarness.settle();
+
+        final AllocationCounter counter = new AllocationCounter();
+        mHarness.getChoreographer().setFrameCallbackCounter(counter);
+        scroller.startScroll(200, 300, 0, 2000);
+        mHarness.settle();
+        mHarness.getChoreographer().setFrameCallbackCounter(null);
+        scroller.release();
+
+        assertTrue(counter.getSpanCount() > 1);
+        assertEquals(0, position[1]);
+        assertEquals(counter.toString(), 0, counter.getBytes());
+    }
+
+    @Test
+    public void bounceDoesNotAllocate() {
+        mHarness.scrollToEnd();
+        dragOverTheFooter(null);
+
+        final AllocationCounter counter = new AllocationCounter();
+        dragOverTheFooter(counter);
+
+        assertTrue(counter.getSpanCount() > 1);
+        assertEquals(0, mHarness.getFooterVisible());
+        assertEquals(counter.toString(), 0, counter.getBytes());
+    }
+
+    /**
+     * Drag the end of the list over the footer gap, then let it bounce back. Only the drag
+     * over the gap and the bounce are counted.
+     */
+    private void dragOverTheFooter(AllocationCounter counter) {
+        mHarness.down();
+        mHarness.move(-10, 3);
+        assertTrue(mHarness.getFooterVisible() > 0);
+
+        mHarness.setTouchCounter(counter);
+        mHarness.move(-10, 20);
+        mHarness.setTouchCounter(null);
+
+        mHarness.getChoreographer().setFrameCallbackCounter(counter);
+        mHarness.release(0);
+        mHarness.getChoreographer().setFrameCallbackCounter(null);
+    }
+}
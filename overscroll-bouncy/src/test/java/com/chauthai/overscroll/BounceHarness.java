@@ -0,0 +1,464 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.Scheduler;
+
+/**
+ * Drives a {@link RecyclerViewBouncy} under Robolectric with scripted gestures and a fake
+ * clock, and records what the bounce costs: the scrollBy calls and the movement of each frame,
+ * the frames until the list is at rest and the peak over-scroll.
+ * <p>
+ * The main looper is paused and the clock only moves by whole frames of
+ * {@link ShadowVsyncChoreographer}, which runs the frame loop of the bounce, the flings of the
+ * RecyclerView and the layout passes at their vsync. {@link FrameClock} is set to the same
+ * clock, so the velocities, the spring and the frame times all agree. The test class must be
+ * configured with the shadows {@link ShadowVsyncChoreographer} and
+ * {@link ShadowPlatformOverScroller}, and with {@link ShadowUncountedViewGroup} to count
+ * allocations.
+ */
+class BounceHarness {
+    static final int LIST_WIDTH = 480;
+    static final int LIST_HEIGHT = 800;
+    static final int ITEM_SIZE = 100;
+
+    /**
+     * A gesture which does not come to rest within this many frames fails.
+     */
+    static final int MAX_FRAMES = 600;
+
+    /**
+     * Where the fingers land, in the middle of the list.
+     */
+    private static final float TOUCH_X = LIST_WIDTH / 2;
+    private static final float TOUCH_Y = LIST_HEIGHT / 2;
+
+    private final Activity mActivity;
+    private final RecyclerViewBouncy mList;
+    private final ShadowVsyncChoreographer mChoreographer;
+    private final Scheduler mScheduler;
+
+    private final MetricsRecorder mMetrics = new MetricsRecorder();
+    private final int mItemCount;
+
+    private long mDownTime = 0;
+    private float mTouchY = 0;
+
+    private AllocationCounter mTouchCounter;
+
+    /**
+     * The frames of the gesture being recorded, see {@link #startGesture()}: the scrollBy
+     * calls, the signed scroll distance and the visible footer gap at the start of each frame.
+     */
+    private int mFrames = 0;
+    private final int[] mFrameScrollBy = new int[2 * MAX_FRAMES];
+    private final int[] mFrameMovement = new int[2 * MAX_FRAMES];
+    private final int[] mFrameFooter = new int[2 * MAX_FRAMES];
+    private int mReleaseFrame = -1;
+
+    /**
+     * Scrolled since the start of the current frame.
+     */
+    private int mScrollByCalls = 0;
+    private int mMovement = 0;
+
+    BounceHarness(BouncyConfig config, int itemCount) {
+        mItemCount = itemCount;
+        mActivity = Robolectric.setupActivity(Activity.class);
+        mScheduler = Robolectric.getForegroundThreadScheduler();
+        mScheduler.pause();
+
+        FrameClock.set(new FrameClock() {
+            @Override
+            long nanoTime() {
+                return SystemClock.uptimeMillis() * 1000000L;
+            }
+        });
+
+        mChoreographer = (ShadowVsyncChoreographer) Shadow.extract(Choreographer.getInstance());
+
+        mList = new RecyclerViewBouncy(mActivity) {
+            @Override
+            public void scrollBy(int x, int y) {
+                mScrollByCalls++;
+                super.scrollBy(x, y);
+            }
+        };
+        mList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                mMovement += dy;
+            }
+        });
+        mList.setLayoutManager(new LinearLayoutManager(mActivity));
+        mList.setBouncyConfig(config);
+        mList.setOnBounceMetricsListener(mMetrics);
+        mList.setAdapter(new SyntheticAdapter(itemCount));
+        mActivity.setContentView(mList, new ViewGroup.LayoutParams(LIST_WIDTH, LIST_HEIGHT));
+
+        // start on a vsync, then let the list be laid out
+        mScheduler.advanceTo(nextVsync());
+        settle();
+    }
+
+    RecyclerViewBouncy getList() {
+        return mList;
+    }
+
+    ShadowVsyncChoreographer getChoreographer() {
+        return mChoreographer;
+    }
+
+    /**
+     * Detach the list, which gives its spring back to the shared spring system, and restore
+     * the clock.
+     */
+    void close() {
+        ((ViewGroup) mList.getParent()).removeView(mList);
+        settle();
+        FrameClock.set(null);
+    }
+
+    /**
+     * Jump to the end of the list, at rest, without over-scroll.
+     */
+    void scrollToEnd() {
+        mList.scrollToPosition(mItemCount - 1);
+        settle();
+    }
+
+    /**
+     * Scroll the list by a distance, at rest, without over-scroll.
+     */
+    void scrollBy(int dy) {
+        mList.scrollBy(0, dy);
+        settle();
+    }
+
+    /**
+     * Run the frames until nothing waits for the next one.
+     * @return number of frames run.
+     */
+    int settle() {
+        int frames = 0;
+        while (mChoreographer.hasPendingCallbacks()) {
+            if (frames++ >= MAX_FRAMES)
+                throw new AssertionError("not at rest after " + MAX_FRAMES + " frames");
+
+            frame();
+        }
+        return frames;
+    }
+
+    /**
+     * Start recording a gesture: the metrics of its over-scroll episodes and its frames.
+     */
+    void startGesture() {
+        mMetrics.clear();
+        mFrames = 0;
+        mReleaseFrame = -1;
+    }
+
+    /**
+     * Put a finger down in the middle of the list.
+     */
+    void down() {
+        mDownTime = SystemClock.uptimeMillis();
+        mTouchY = TOUCH_Y;
+        touch(MotionEvent.ACTION_DOWN);
+    }
+
+    /**
+     * Move the finger by the same distance on each frame, one touch event per frame.
+     * @param dy distance per frame, negative to scroll toward the end of the list.
+     */
+    void move(float dy, int frames) {
+        for (int i = 0; i < frames; i++) {
+            frame();
+            mTouchY += dy;
+            touch(MotionEvent.ACTION_MOVE);
+        }
+    }
+
+    /**
+     * Lift the finger on the next frame, after it has moved by dy, 0 for a finger which has
+     * stopped. Then run the frames until the list is at rest.
+     * @return number of frames from the release to the rest.
+     */
+    int release(float dy) {
+        frame();
+        mTouchY += dy;
+        touch(MotionEvent.ACTION_UP);
+        mReleaseFrame = mFrames;
+
+        return settle();
+    }
+
+    /**
+     * Dispatch the touch events of a trace one per frame, the pace of the gestures of the
+     * harness, then run the frames until the list is at rest.
+     * @return number of frames from the last event to the rest.
+     */
+    int replay(BouncyReplayer replayer) {
+        boolean more = replayer.dispatchNext(mList);
+        while (more) {
+            frame();
+            more = replayer.dispatchNext(mList);
+        }
+
+        return settle();
+    }
+
+    /**
+     * Count the allocations of each touch event dispatched to the list from now on.
+     * @param counter null to stop counting.
+     */
+    void setTouchCounter(AllocationCounter counter) {
+        mTouchCounter = counter;
+    }
+
+    /**
+     * @return the metrics of the episodes of the gesture.
+     */
+    MetricsRecorder getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * @return number of frames run since {@link #startGesture()}.
+     */
+    int getFrameCount() {
+        return mFrames;
+    }
+
+    /**
+     * @return number of frames of the gesture whose movement is kept, the first ones.
+     */
+    int getRecordedFrameCount() {
+        return Math.min(mFrames, mFrameMovement.length);
+    }
+
+    /**
+     * @return index of the first frame after the finger was lifted, -1 if it was not.
+     */
+    int getReleaseFrame() {
+        return mReleaseFrame;
+    }
+
+    /**
+     * @return number of scrollBy calls on the list during the frame, the touch events not included.
+     */
+    int getFrameScrollByCount(int frame) {
+        return mFrameScrollBy[frame];
+    }
+
+    /**
+     * @return distance scrolled during the frame, negative toward the start of the list.
+     */
+    int getFrameMovement(int frame) {
+        return mFrameMovement[frame];
+    }
+
+    /**
+     * @return the visible length of the footer gap at the start of the frame.
+     */
+    int getFrameFooterVisible(int frame) {
+        return mFrameFooter[frame];
+    }
+
+    /**
+     * @return the visible length of the footer gap, in pixels.
+     */
+    int getFooterVisible() {
+        // the adapter of the list is the BouncyAdapter, which ends with the footer gap
+        final View footer = findViewByLayoutPosition(mList.getAdapter().getItemCount() - 1);
+        return (footer == null)? 0 : Math.max(0, LIST_HEIGHT - footer.getTop());
+    }
+
+    /**
+     * @param position position in the synthetic adapter.
+     */
+    boolean isItemFullyVisible(int position) {
+        final View view = findViewByLayoutPosition(position + 1);
+        return view != null && view.getTop() >= 0 && view.getBottom() <= LIST_HEIGHT;
+    }
+
+    private View findViewByLayoutPosition(int position) {
+        return mList.getLayoutManager().findViewByPosition(position);
+    }
+
+    private void touch(int action) {
+        final MotionEvent event = MotionEvent.obtain(mDownTime, SystemClock.uptimeMillis(), action,
+                TOUCH_X, mTouchY, 0);
+        final AllocationCounter counter = mTouchCounter;
+
+        if (counter == null) {
+            mList.dispatchTouchEvent(event);
+        } else {
+            counter.begin();
+            try {
+                mList.dispatchTouchEvent(event);
+            } finally {
+                counter.end();
+            }
+        }
+        event.recycle();
+    }
+
+    /**
+     * Advance the clock to the next vsync, which runs the frame.
+     */
+    private void frame() {
+        final boolean recorded = mFrames < mFrameMovement.length;
+        if (recorded) {
+            mFrameFooter[mFrames] = getFooterVisible();
+        }
+
+        mScrollByCalls = 0;
+        mMovement = 0;
+        mScheduler.advanceTo(nextVsync());
+
+        if (recorded) {
+            mFrameScrollBy[mFrames] = mScrollByCalls;
+            mFrameMovement[mFrames] = mMovement;
+        }
+        mFrames++;
+    }
+
+    private long nextVsync() {
+        final long interval = ShadowVsyncChoreographer.FRAME_INTERVAL_MS;
+        return (mScheduler.getCurrentTime() / interval + 1) * interval;
+    }
+
+    /**
+     * Sums the metrics of the over-scroll episodes, the metrics object being reused.
+     */
+    static class MetricsRecorder implements BouncyMetrics.Listener {
+        private int mEpisodes = 0;
+        private int mFrames = 0;
+        private int mScrollByCount = 0;
+        private long mMaxReleaseToRest = -1;
+        private int mPeakOverScroll = 0;
+
+        @Override
+        public void onBounceMetrics(BouncyMetrics metrics) {
+            mEpisodes++;
+            mFrames += metrics.getFrameCount();
+            mScrollByCount += metrics.getSectionCallCount(BouncyMetrics.SECTION_SCROLL_BY);
+            mMaxReleaseToRest = Math.max(mMaxReleaseToRest, metrics.getReleaseToRestNanos());
+            mPeakOverScroll = Math.max(mPeakOverScroll, metrics.getPeakOverScroll());
+        }
+
+        void clear() {
+            mEpisodes = 0;
+            mFrames = 0;
+            mScrollByCount = 0;
+            mMaxReleaseToRest = -1;
+            mPeakOverScroll = 0;
+        }
+
+        int getEpisodeCount() {
+            return mEpisodes;
+        }
+
+        int getScrollByCount() {
+            return mScrollByCount;
+        }
+
+        int getPeakOverScroll() {
+            return mPeakOverScroll;
+        }
+
+        /**
+         * @return the longest time from a release to the rest, in frames, -1 if every episode
+         * ended while the list was dragged.
+         */
+        int getMaxReleaseToRestFrames() {
+            return (mMaxReleaseToRest < 0)? -1
+                    : (int) (mMaxReleaseToRest / (ShadowVsyncChoreographer.FRAME_INTERVAL_MS * 1000000L));
+        }
+
+        @Override
+        public String toString() {
+            return "episodes=" + mEpisodes + ", frames=" + mFrames + ", scrollBy=" + mScrollByCount
+                    + ", peak=" + mPeakOverScroll + "px, releaseToRest=" + getMaxReleaseToRestFrames() + " frames";
+        }
+    }
+
+    /**
+     * Plain items of a fixed size, with nothing to bind.
+     */
+    static class SyntheticAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private final int mItemCount;
+
+        SyntheticAdapter(int itemCount) {
+            mItemCount = itemCount;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            final View view = new SyntheticItemView(parent.getContext());
+            view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_SIZE));
+
+            return new RecyclerView.ViewHolder(view) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return mItemCount;
+        }
+    }
+
+    /**
+     * An item with no content to lay out, which also keeps the shim of Robolectric for
+     * View.onLayout() out of the way, it allocates on every layout.
+     */
+    private static class SyntheticItemView extends View {
+        SyntheticItemView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        }
+    }
+}
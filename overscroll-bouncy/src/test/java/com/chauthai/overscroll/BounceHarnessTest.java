@@ -0,0 +1,264 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scripted gestures on a list of the default configuration, driven frame by frame through
+ * {@link BounceHarness}. Each gesture checks its scrollBy calls, frames to rest, peak
+ * over-scroll and per-frame movement, and that the list ends at rest at the right place.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23,
+        shadows = {ShadowVsyncChoreographer.class, ShadowPlatformOverScroller.class})
+public class BounceHarnessTest {
+    private static final int ITEM_COUNT = 50;
+
+    /**
+     * About 3 s at 16 ms per frame. The default spring is overdamped and crawls to its rest
+     * threshold of 0.005 px, which takes about 2 s from the full gap limit.
+     */
+    private static final int MAX_FRAMES_TO_REST = 180;
+
+    /**
+     * Below this over-scroll distance the default spring moves by less than a pixel per frame
+     * near its rest, so frames without movement are expected.
+     */
+    private static final int STALL_FREE_GAP = 24;
+
+    private BounceHarness mHarness;
+
+    @Before
+    public void setUp() {
+        mHarness = new BounceHarness(BouncyConfig.DEFAULT, ITEM_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        mHarness.close();
+    }
+
+    @Test
+    public void springFramesRunOnTheVsync() {
+        final ShadowVsyncChoreographer choreographer = mHarness.getChoreographer();
+        final int framesBefore = choreographer.getFrameCount();
+
+        final long[] frameTimes = new long[3];
+        final int[] count = {0};
+
+        final SpringScroller scroller = new SpringScroller(1000, 200, SpringScroller.AXIS_Y,
+                new SpringScroller.SpringScrollerListener() {
+                    @Override
+                    public void onSpringUpdate(int currX, int currY) {
+                        if (count[0] < frameTimes.length) {
+                            frameTimes[count[0]++] = FrameClock.now();
+                        }
+                    }
+
+                    @Override
+                    public void onSpringAtRest() {
+                    }
+                });
+
+        scroller.startScroll(0, 300);
+        mHarness.settle();
+        scroller.release();
+
+        assertEquals(frameTimes.length, count[0]);
+        assertTrue(choreographer.getFrameCount() > framesBefore);
+
+        for (int i = 0; i < frameTimes.length; i++) {
+            assertEquals(0, frameTimes[i] % (ShadowVsyncChoreographer.FRAME_INTERVAL_MS * 1000000L));
+
+            if (i > 0) {
+                assertEquals(ShadowVsyncChoreographer.FRAME_INTERVAL_MS * 1000000L,
+                        frameTimes[i] - frameTimes[i - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void slowDragPastTheEnd() {
+        mHarness.scrollToEnd();
+        mHarness.startGesture();
+
+        mHarness.down();
+        mHarness.move(-10, 30);
+        mHarness.release(0);
+
+        assertBouncedBack();
+        assertTrue(mHarness.isItemFullyVisible(ITEM_COUNT - 1));
+    }
+
+    @Test
+    public void hardFlingIntoTheFooter() {
+        mHarness.scrollToEnd();
+        mHarness.scrollBy(-3 * BounceHarness.LIST_HEIGHT / 2);
+        assertFalse(mHarness.isItemFullyVisible(ITEM_COUNT - 1));
+        mHarness.startGesture();
+
+        mHarness.down();
+        mHarness.move(-80, 5);
+        mHarness.release(-80);
+
+        assertBouncedBack();
+        assertTrue(mHarness.isItemFullyVisible(ITEM_COUNT - 1));
+    }
+
+    @Test
+    public void reverseFlingWhileOverScrolled() {
+        mHarness.scrollToEnd();
+        mHarness.startGesture();
+
+        mHarness.down();
+        mHarness.move(-10, 20);
+        assertTrue(mHarness.getFooterVisible() > 0);
+
+        mHarness.move(60, 3);
+        mHarness.release(60);
+
+        assertBouncedBack();
+
+        // the fling carried on into the content
+        assertFalse(mHarness.isItemFullyVisible(ITEM_COUNT - 1));
+    }
+
+    @Test
+    public void replayedDragBouncesTheSame() throws IOException {
+        mHarness.scrollToEnd();
+        final BouncyRecorder recorder = new BouncyRecorder(64 * 1024);
+        mHarness.getList().setBouncyRecorder(recorder);
+
+        mHarness.down();
+        mHarness.move(-10, 20);
+        mHarness.release(0);
+        final BouncyReplayer recorded = roundTrip(recorder);
+
+        // the same gesture, replayed into a new list
+        mHarness.close();
+        mHarness = new BounceHarness(BouncyConfig.DEFAULT, ITEM_COUNT);
+        mHarness.scrollToEnd();
+        final BouncyRecorder replayRecorder = new BouncyRecorder(64 * 1024);
+        mHarness.getList().setBouncyRecorder(replayRecorder);
+
+        mHarness.replay(roundTrip(recorder));
+        final BouncyReplayer replayed = roundTrip(replayRecorder);
+
+        assertEquals(recorded.getTouchEventCount(), replayed.getTouchEventCount());
+        assertTrue(recorded.getSpringValueCount() > 0);
+        assertEquals(recorded.getSpringValueCount(), replayed.getSpringValueCount());
+        for (int i = 0; i < recorded.getSpringValueCount(); i++) {
+            assertEquals("spring value " + i, recorded.getSpringValue(i), replayed.getSpringValue(i));
+        }
+
+        assertTrue(recorded.getScrollCount() > 0);
+        assertEquals(recorded.getScrollCount(), replayed.getScrollCount());
+        final long timeShift = replayed.getScrollTime(0) - recorded.getScrollTime(0);
+        for (int i = 0; i < recorded.getScrollCount(); i++) {
+            final String name = "scroll " + i;
+            assertEquals(name, recorded.getScrollTime(i) + timeShift, replayed.getScrollTime(i));
+            assertEquals(name, recorded.getScrollDx(i), replayed.getScrollDx(i));
+            assertEquals(name, recorded.getScrollDy(i), replayed.getScrollDy(i));
+            assertEquals(name, recorded.getScrollState(i), replayed.getScrollState(i));
+        }
+
+        assertEquals(0, mHarness.getFooterVisible());
+    }
+
+    private static BouncyReplayer roundTrip(BouncyRecorder recorder) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorder.writeTo(out);
+        return new BouncyReplayer(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /**
+     * The gesture has over-scrolled the list, through scrollBy, and the list is back at rest
+     * with the gap hidden, in time and smoothly.
+     */
+    private void assertBouncedBack() {
+        final BounceHarness.MetricsRecorder metrics = mHarness.getMetrics();
+        final float gapLimitPx = BouncyConfig.DEFAULT.gapLimit
+                * mHarness.getList().getResources().getDisplayMetrics().density;
+
+        assertTrue(metrics.getEpisodeCount() > 0);
+        assertTrue(metrics.getScrollByCount() > 0);
+        assertTrue(metrics.getPeakOverScroll() > 0);
+        assertTrue(metrics.getPeakOverScroll() <= gapLimitPx);
+
+        assertEquals(0, mHarness.getFooterVisible());
+        assertFalse(mHarness.getChoreographer().hasPendingCallbacks());
+
+        assertTrue(metrics.toString(), metrics.getMaxReleaseToRestFrames() <= MAX_FRAMES_TO_REST);
+        assertFrames();
+    }
+
+    /**
+     * At most one scrollBy per frame, and after the release no frame stands still while the
+     * gap is visible, except at the turning point of the list.
+     */
+    private void assertFrames() {
+        final int frameCount = mHarness.getRecordedFrameCount();
+
+        for (int i = 0; i < frameCount; i++) {
+            assertTrue("frame " + i, mHarness.getFrameScrollByCount(i) <= 1);
+        }
+
+        int previous = 0;
+        for (int i = mHarness.getReleaseFrame(); i < frameCount; i++) {
+            final int movement = mHarness.getFrameMovement(i);
+
+            if (movement != 0) {
+                previous = movement;
+            } else if (previous != 0 && mHarness.getFrameFooterVisible(i) >= STALL_FREE_GAP) {
+                // a stall unless the list turns around on the next moving frame
+                final int next = nextMovement(i, frameCount);
+                assertTrue("stalled frame " + i, next == 0 || (next > 0) != (previous > 0));
+            }
+        }
+    }
+
+    private int nextMovement(int frame, int frameCount) {
+        for (int i = frame + 1; i < frameCount; i++) {
+            final int movement = mHarness.getFrameMovement(i);
+            if (movement != 0)
+                return movement;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trips of traces through {@link BouncyRecorder#writeTo(java.io.OutputStream)} and
+ * {@link BouncyReplayer#BouncyReplayer(java.io.InputStream)}, replayed step by step with
+ * {@link BouncyReplayer#dispatchNext(View)}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class BouncyRecorderTest {
+    private static final long DOWN_TIME = 1000;
+
+    private final List<MotionEvent> mRecorded = new ArrayList<MotionEvent>();
+
+    @After
+    public void tearDown() {
+        for (MotionEvent event : mRecorded) {
+            event.recycle();
+        }
+    }
+
+    @Test
+    public void dragAndFlingRoundTrip() throws IOException {
+        final BouncyRecorder recorder = new BouncyRecorder(64 * 1024);
+
+        record(recorder, obtain(MotionEvent.ACTION_DOWN, DOWN_TIME, 100.5f, 400.25f));
+        recorder.recordScroll(DOWN_TIME * 1000000L, 0, 0, 0);
+
+        // a drag with historical samples
+        final MotionEvent move = obtain(MotionEvent.ACTION_MOVE, 1008, 100.5f, 390f);
+        move.addBatch(1012, 101f, 375.5f, 1, 1, 0);
+        move.addBatch(1016, 101.0625f, 361.75f, 1, 1, 0);
+        record(recorder, move);
+        recorder.recordScroll(1016 * 1000000L, 0, -38, 1);
+
+        // a second finger, with a pointer id far from the first one
+        record(recorder, obtain(MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT),
+                1020, new int[] {0, 7}, new float[] {101f, 361.75f, 300f, 500f}));
+
+        final MotionEvent twoFingers = obtain(MotionEvent.ACTION_MOVE, 1024, new int[] {0, 7},
+                new float[] {101f, 340f, 301.5f, 480f});
+        twoFingers.addBatch(1032, coords(101f, 300f, 303f, 440.125f), 0);
+        record(recorder, twoFingers);
+
+        record(recorder, obtain(MotionEvent.ACTION_POINTER_UP, 1036, new int[] {0, 7},
+                new float[] {101f, 290f, 303f, 430f}));
+
+        // the fling, then the spring takes over at the edge
+        record(recorder, obtain(MotionEvent.ACTION_UP, 1040, 101f, 250f));
+        recorder.recordScroll(1056 * 1000000L, 0, -120, 2);
+        recorder.recordScroll(1072 * 1000000L, 0, -80, 2);
+
+        final int[] springValues = {-96, -70, -41, -17, -4, 0};
+        for (int i = 0; i < springValues.length; i++) {
+            recorder.recordSpring((1088 + 16 * i) * 1000000L, springValues[i]);
+        }
+
+        final BouncyReplayer replayer = roundTrip(recorder);
+
+        assertEquals(mRecorded.size(), replayer.getTouchEventCount());
+        assertEquals(4, replayer.getScrollCount());
+        assertScroll(replayer, 0, DOWN_TIME * 1000, 0, 0, 0);
+        assertScroll(replayer, 1, 1016 * 1000, 0, -38, 1);
+        assertScroll(replayer, 2, 1056 * 1000, 0, -120, 2);
+        assertScroll(replayer, 3, 1072 * 1000, 0, -80, 2);
+        assertEquals(springValues.length, replayer.getSpringValueCount());
+        for (int i = 0; i < springValues.length; i++) {
+            assertEquals(springValues[i], replayer.getSpringValue(i));
+        }
+
+        final List<TouchEvent> replayed = replay(replayer);
+        assertEquals(mRecorded.size(), replayed.size());
+
+        // the replay is shifted to the present
+        final long timeShift = replayed.get(0).getEventTime() - mRecorded.get(0).getEventTime();
+        for (int i = 0; i < mRecorded.size(); i++) {
+            assertSameEvent(new TouchEvent(mRecorded.get(i)), replayed.get(i), timeShift);
+        }
+    }
+
+    @Test
+    public void overflowingRingDecodesFromASyncBlock() throws IOException {
+        // the smallest ring, two blocks
+        final BouncyRecorder recorder = new BouncyRecorder(0);
+        final int moveCount = 2000;
+
+        record(recorder, obtain(MotionEvent.ACTION_DOWN, DOWN_TIME, 240f, 700f));
+        for (int i = 1; i <= moveCount; i++) {
+            final long time = DOWN_TIME + 8 * i;
+
+            record(recorder, obtain(MotionEvent.ACTION_MOVE, time, 240f + (i % 5), 700f - i / 4f));
+            recorder.recordScroll(time * 1000000L, 0, -1, 1);
+            recorder.recordSpring(time * 1000000L, i);
+        }
+
+        final BouncyReplayer replayer = roundTrip(recorder);
+
+        // the oldest blocks are gone, the rest is whole
+        final int springCount = replayer.getSpringValueCount();
+        assertTrue(springCount > 0);
+        assertTrue(springCount < moveCount);
+        for (int i = 0; i < springCount; i++) {
+            assertEquals(moveCount - springCount + 1 + i, replayer.getSpringValue(i));
+        }
+
+        final int touchCount = replayer.getTouchEventCount();
+        assertTrue(touchCount >= springCount);
+        assertTrue(touchCount <= springCount + 1);
+        assertTrue(replayer.getScrollCount() >= springCount);
+        for (int i = 0; i < replayer.getScrollCount(); i++) {
+            assertEquals(-1, replayer.getScrollDy(i));
+        }
+
+        // the positions are absolute again after the sync record
+        final List<TouchEvent> replayed = replay(replayer);
+        final int first = mRecorded.size() - touchCount;
+        final long timeShift = replayed.get(0).getEventTime() - mRecorded.get(first).getEventTime();
+        for (int i = 0; i < touchCount; i++) {
+            assertSameEvent(new TouchEvent(mRecorded.get(first + i)), replayed.get(i), timeShift);
+        }
+    }
+
+    @Test
+    public void emptyTraceRoundTrip() throws IOException {
+        final BouncyReplayer replayer = roundTrip(new BouncyRecorder(0));
+
+        assertEquals(0, replayer.getTouchEventCount());
+        assertEquals(0, replayer.getScrollCount());
+        assertEquals(0, replayer.getSpringValueCount());
+        assertFalse(replayer.dispatchNext(new CapturingView(RuntimeEnvironment.application)));
+    }
+
+    private void record(BouncyRecorder recorder, MotionEvent event) {
+        recorder.recordTouch(event);
+        mRecorded.add(event);
+    }
+
+    private static BouncyReplayer roundTrip(BouncyRecorder recorder) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorder.writeTo(out);
+        return new BouncyReplayer(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static List<TouchEvent> replay(BouncyReplayer replayer) {
+        final CapturingView view = new CapturingView(RuntimeEnvironment.application);
+
+        for (int i = 0; i < replayer.getTouchEventCount(); i++) {
+            assertEquals(i < replayer.getTouchEventCount() - 1, replayer.dispatchNext(view));
+        }
+        return view.mEvents;
+    }
+
+    private static void assertScroll(BouncyReplayer replayer, int index, long timeMicros, int dx, int dy, int state) {
+        assertEquals(timeMicros, replayer.getScrollTime(index));
+        assertEquals(dx, replayer.getScrollDx(index));
+        assertEquals(dy, replayer.getScrollDy(index));
+        assertEquals(state, replayer.getScrollState(index));
+    }
+
+    private static void assertSameEvent(TouchEvent expected, TouchEvent actual, long timeShift) {
+        final String name = "event at " + expected.getEventTime();
+
+        assertEquals(name, expected.mAction, actual.mAction);
+        assertEquals(name, expected.mDownTime + timeShift, actual.mDownTime);
+        assertArrayEquals(name, expected.mPointerIds, actual.mPointerIds);
+        assertEquals(name, expected.mTimes.length, actual.mTimes.length);
+
+        for (int s = 0; s < expected.mTimes.length; s++) {
+            assertEquals(name, expected.mTimes[s] + timeShift, actual.mTimes[s]);
+        }
+
+        // the positions are multiples of 1/16 pixel, the precision of the trace
+        assertArrayEquals(name, expected.mX, actual.mX, 0);
+        assertArrayEquals(name, expected.mY, actual.mY, 0);
+    }
+
+    /**
+     * A single pointer event of the gesture started at {@link #DOWN_TIME}.
+     */
+    private static MotionEvent obtain(int action, long eventTime, float x, float y) {
+        return MotionEvent.obtain(DOWN_TIME, eventTime, action, x, y, 0);
+    }
+
+    /**
+     * @param positions x and y of each pointer.
+     */
+    private static MotionEvent obtain(int action, long eventTime, int[] pointerIds, float[] positions) {
+        final MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[pointerIds.length];
+
+        for (int p = 0; p < pointerIds.length; p++) {
+            properties[p] = new MotionEvent.PointerProperties();
+            properties[p].id = pointerIds[p];
+            properties[p].toolType = MotionEvent.TOOL_TYPE_FINGER;
+        }
+
+        return MotionEvent.obtain(DOWN_TIME, eventTime, action, pointerIds.length, properties,
+                coords(positions), 0, 0, 1f, 1f, 0, 0, 0, 0);
+    }
+
+    private static MotionEvent.PointerCoords[] coords(float... positions) {
+        final MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[positions.length / 2];
+
+        for (int p = 0; p < coords.length; p++) {
+            coords[p] = new MotionEvent.PointerCoords();
+            coords[p].x = positions[2 * p];
+            coords[p].y = positions[2 * p + 1];
+            coords[p].pressure = 1;
+            coords[p].size = 1;
+        }
+        return coords;
+    }
+
+    /**
+     * The values of a touch event which go into a trace, with the samples indexed by
+     * sample * pointerCount + pointer. A copy made with MotionEvent.obtain(MotionEvent) would
+     * not do, Robolectric shares its pointers with the original, which the replayer recycles.
+     */
+    private static class TouchEvent {
+        final int mAction;
+        final long mDownTime;
+        final int[] mPointerIds;
+        final long[] mTimes;
+        final float[] mX;
+        final float[] mY;
+
+        TouchEvent(MotionEvent e) {
+            final int pointerCount = e.getPointerCount();
+            final int historySize = e.getHistorySize();
+
+            mAction = e.getAction();
+            mDownTime = e.getDownTime();
+            mPointerIds = new int[pointerCount];
+            mTimes = new long[historySize + 1];
+            mX = new float[(historySize + 1) * pointerCount];
+            mY = new float[(historySize + 1) * pointerCount];
+
+            for (int p = 0; p < pointerCount; p++) {
+                mPointerIds[p] = e.getPointerId(p);
+            }
+
+            for (int h = 0; h <= historySize; h++) {
+                final boolean current = (h == historySize);
+                mTimes[h] = current? e.getEventTime() : e.getHistoricalEventTime(h);
+
+                for (int p = 0; p < pointerCount; p++) {
+                    mX[h * pointerCount + p] = current? e.getX(p) : e.getHistoricalX(p, h);
+                    mY[h * pointerCount + p] = current? e.getY(p) : e.getHistoricalY(p, h);
+                }
+            }
+        }
+
+        long getEventTime() {
+            return mTimes[mTimes.length - 1];
+        }
+    }
+
+    /**
+     * Keeps the values of every touch event dispatched to it.
+     */
+    private static class CapturingView extends View {
+        final List<TouchEvent> mEvents = new ArrayList<TouchEvent>();
+
+        CapturingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean dispatchTouchEvent(MotionEvent event) {
+            mEvents.add(new TouchEvent(event));
+            return true;
+        }
+    }
+}
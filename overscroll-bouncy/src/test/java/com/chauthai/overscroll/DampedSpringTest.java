@@ -0,0 +1,184 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.facebook.rebound.SteppingLooper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link DampedSpring} with the Rebound spring it replaced. Rebound is advanced by
+ * exactly one of its 1 ms solver steps at a time, so it is never interpolated between steps
+ * and its only error is the one of its RK4 integration.
+ */
+public class DampedSpringTest {
+    /**
+     * Largest distance between the two trajectories, in pixels.
+     */
+    private static final double TOLERANCE = 0.001;
+
+    /**
+     * Largest difference between the times the two springs come to rest, in ms.
+     */
+    private static final int REST_TOLERANCE_MS = 1;
+
+    private static final int MAX_DURATION_MS = 10000;
+
+    @Test
+    public void defaultConfigMatchesRebound() {
+        final BouncyConfig config = BouncyConfig.DEFAULT;
+
+        assertMatchesRebound(config.getTension(), config.getFriction(), 500, 0);
+        assertMatchesRebound(config.getTension(), config.getFriction(), 37, 0);
+    }
+
+    @Test
+    public void defaultConfigWithVelocityMatchesRebound() {
+        final BouncyConfig config = BouncyConfig.DEFAULT;
+
+        // a fling handed to the spring at the edge, see BounceMath.handOffVelocity()
+        assertMatchesRebound(config.getTension(), config.getFriction(), 0, 4000);
+        assertMatchesRebound(config.getTension(), config.getFriction(), 120, 2500);
+    }
+
+    @Test
+    public void underdampedMatchesRebound() {
+        assertMatchesRebound(1000, 20, 300, 0);
+        assertMatchesRebound(200, 5, 300, -1500);
+    }
+
+    @Test
+    public void criticallyDampedMatchesRebound() {
+        // friction^2 == 4 * tension
+        assertMatchesRebound(400, 40, 300, 0);
+        assertMatchesRebound(2500, 100, 80, 3000);
+    }
+
+    @Test
+    public void startsAtRestWhenAlreadyAtRest() {
+        final DampedSpring spring = new DampedSpring(1000, 200);
+
+        spring.start(0, 0);
+        assertTrue(spring.isAtRest());
+
+        spring.start(DampedSpring.REST_DISPLACEMENT_THRESHOLD / 2, 0);
+        assertTrue(spring.isAtRest());
+
+        spring.start(0, 1);
+        assertFalse(spring.isAtRest());
+    }
+
+    @Test
+    public void snapsToZeroAtRest() {
+        final DampedSpring spring = new DampedSpring(1000, 200);
+        spring.start(500, 0);
+
+        int timeMs = 0;
+        while (!spring.isAtRest() && timeMs < MAX_DURATION_MS) {
+            timeMs++;
+            spring.evaluate(timeMs / 1000.0);
+        }
+
+        assertTrue(spring.isAtRest());
+        assertEquals(0, spring.getPosition(), 0);
+        assertEquals(0, spring.getVelocity(), 0);
+
+        // nothing changes afterward
+        spring.evaluate(timeMs / 1000.0 + 1);
+        assertEquals(0, spring.getPosition(), 0);
+    }
+
+    @Test
+    public void setAtRestKeepsThePosition() {
+        final DampedSpring spring = new DampedSpring(1000, 200);
+        spring.start(500, 0);
+        spring.evaluate(0.05);
+
+        final double position = spring.getPosition();
+        spring.setAtRest();
+        spring.evaluate(0.1);
+
+        assertTrue(spring.isAtRest());
+        assertEquals(position, spring.getPosition(), 0);
+        assertEquals(0, spring.getVelocity(), 0);
+    }
+
+    /**
+     * Run both springs from the same state, compare them on every ms and check that they come
+     * to rest at the same time.
+     */
+    private static void assertMatchesRebound(double tension, double friction, double position,
+                                             double velocity) {
+        final String name = "tension " + tension + ", friction " + friction + ", position "
+                + position + ", velocity " + velocity;
+
+        // SteppingLooper.step() passes the total elapsed time as the step, loop() is used instead
+        final BaseSpringSystem system = new BaseSpringSystem(new SteppingLooper());
+        final Spring reference = system.createSpring()
+                .setSpringConfig(new SpringConfig(tension, friction))
+                .setCurrentValue(position)
+                .setVelocity(velocity)
+                .setEndValue(0);
+
+        final DampedSpring spring = new DampedSpring(tension, friction);
+        spring.start(position, velocity);
+
+        int referenceRestMs = -1;
+        int springRestMs = -1;
+
+        for (int timeMs = 1; timeMs <= MAX_DURATION_MS; timeMs++) {
+            if (referenceRestMs < 0) {
+                system.loop(1);
+                if (reference.isAtRest()) {
+                    referenceRestMs = timeMs;
+                }
+            }
+
+            if (springRestMs < 0) {
+                spring.evaluate(timeMs / 1000.0);
+                if (spring.isAtRest()) {
+                    springRestMs = timeMs;
+                }
+            }
+
+            assertEquals(name + " at " + timeMs + "ms", reference.getCurrentValue(),
+                    spring.getPosition(), TOLERANCE);
+
+            if (referenceRestMs >= 0 && springRestMs >= 0)
+                break;
+        }
+
+        assertTrue(name + ", Rebound did not come to rest", referenceRestMs > 0);
+        assertTrue(name + ", the spring did not come to rest", springRestMs > 0);
+        assertEquals(name + ", rest time", referenceRestMs, springRestMs, REST_TOLERANCE_MS);
+    }
+}
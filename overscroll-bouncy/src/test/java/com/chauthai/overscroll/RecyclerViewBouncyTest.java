@@ -0,0 +1,145 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.app.Activity;
+import android.support.v7.widget.GridLayoutManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The span size lookup of a grid across the changes of the bounce mode and of the adapter.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class RecyclerViewBouncyTest {
+    private static final int SPAN_COUNT = 3;
+    private static final int ITEM_COUNT = 10;
+
+    private static final BouncyConfig GAP = new BouncyConfig.Builder()
+            .setBounceMode(BouncyConfig.BOUNCE_MODE_GAP)
+            .build();
+
+    private static final BouncyConfig TRANSLATION = new BouncyConfig.Builder()
+            .setBounceMode(BouncyConfig.BOUNCE_MODE_TRANSLATION)
+            .build();
+
+    private RecyclerViewBouncy mList;
+    private GridLayoutManager mGrid;
+
+    /**
+     * The lookup of the user, every third item takes a whole row.
+     */
+    private final GridLayoutManager.SpanSizeLookup mLookup = new GridLayoutManager.SpanSizeLookup() {
+        @Override
+        public int getSpanSize(int position) {
+            return (position % 3 == 0)? SPAN_COUNT : 1;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+
+        mGrid = new GridLayoutManager(activity, SPAN_COUNT);
+        mGrid.setSpanSizeLookup(mLookup);
+
+        mList = new RecyclerViewBouncy(activity);
+        mList.setLayoutManager(mGrid);
+    }
+
+    @Test
+    public void gapModeWrapsTheLookup() {
+        mList.setBouncyConfig(GAP);
+        mList.setAdapter(new BounceHarness.SyntheticAdapter(ITEM_COUNT));
+
+        assertGapSpans();
+    }
+
+    @Test
+    public void translationModeRestoresTheLookup() {
+        mList.setBouncyConfig(GAP);
+        mList.setAdapter(new BounceHarness.SyntheticAdapter(ITEM_COUNT));
+
+        mList.setBouncyConfig(TRANSLATION);
+        assertSame(mLookup, mGrid.getSpanSizeLookup());
+        assertUserSpans();
+
+        // and back, wrapped once
+        mList.setBouncyConfig(GAP);
+        assertGapSpans();
+    }
+
+    @Test
+    public void removingTheAdapterRestoresTheLookup() {
+        mList.setAdapter(new BounceHarness.SyntheticAdapter(ITEM_COUNT));
+        mList.setAdapter(null);
+
+        assertSame(mLookup, mGrid.getSpanSizeLookup());
+    }
+
+    @Test
+    public void lookupOfTheUserIsKept() {
+        mList.setAdapter(new BounceHarness.SyntheticAdapter(ITEM_COUNT));
+
+        // replaced by the user while the adapter is installed
+        final GridLayoutManager.SpanSizeLookup lookup = new GridLayoutManager.DefaultSpanSizeLookup();
+        mGrid.setSpanSizeLookup(lookup);
+
+        mList.setBouncyConfig(TRANSLATION);
+        assertSame(lookup, mGrid.getSpanSizeLookup());
+    }
+
+    /**
+     * The gaps at both ends take a whole row, the items keep their own spans.
+     */
+    private void assertGapSpans() {
+        final GridLayoutManager.SpanSizeLookup lookup = mGrid.getSpanSizeLookup();
+        assertNotSame(mLookup, lookup);
+
+        assertEquals(SPAN_COUNT, lookup.getSpanSize(0));
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            assertEquals(mLookup.getSpanSize(i), lookup.getSpanSize(i + 1));
+        }
+        assertEquals(SPAN_COUNT, lookup.getSpanSize(ITEM_COUNT + 1));
+    }
+
+    private void assertUserSpans() {
+        final GridLayoutManager.SpanSizeLookup lookup = mGrid.getSpanSizeLookup();
+
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            assertEquals(mLookup.getSpanSize(i), lookup.getSpanSize(i));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowViewGroup;
+
+/**
+ * The stock shadow of the ViewGroups and of their View methods, with its shims kept out of
+ * the {@link AllocationCounter}. These shims stand in for the platform and allocate where it
+ * does not, through proxies, reflection or the scheduler, so what they allocate is not what
+ * the list allocates on a device.
+ * <p>
+ * The shadow methods are looked up on the shadow of the instance, so this class covers the
+ * View methods called on the RecyclerView and its parents. The items of
+ * {@link BounceHarness} are plain Views which do not call the shadowed onLayout().
+ */
+@Implements(ViewGroup.class)
+public class ShadowUncountedViewGroup extends ShadowViewGroup {
+
+    @Implementation
+    @Override
+    protected void invalidate() {
+        AllocationCounter.pause();
+        try {
+            super.invalidate();
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected void postInvalidateDelayed(long delayMilliseconds) {
+        AllocationCounter.pause();
+        try {
+            super.postInvalidateDelayed(delayMilliseconds);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected void requestLayout() {
+        AllocationCounter.pause();
+        try {
+            super.requestLayout();
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        AllocationCounter.pause();
+        try {
+            super.onLayout(changed, left, top, right, bottom);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected boolean post(Runnable action) {
+        AllocationCounter.pause();
+        try {
+            return super.post(action);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected boolean postDelayed(Runnable action, long delayMills) {
+        AllocationCounter.pause();
+        try {
+            return super.postDelayed(action, delayMills);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected boolean removeCallbacks(Runnable callback) {
+        AllocationCounter.pause();
+        try {
+            return super.removeCallbacks(callback);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected void scrollTo(int x, int y) {
+        AllocationCounter.pause();
+        try {
+            super.scrollTo(x, y);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected boolean isAttachedToWindow() {
+        AllocationCounter.pause();
+        try {
+            return super.isAttachedToWindow();
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected void addView(View child, int index, ViewGroup.LayoutParams params) {
+        AllocationCounter.pause();
+        try {
+            super.addView(child, index, params);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected void removedChild(View child) {
+        AllocationCounter.pause();
+        try {
+            super.removedChild(child);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+        AllocationCounter.pause();
+        try {
+            super.requestDisallowInterceptTouchEvent(disallowIntercept);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+
+    @Implementation
+    @Override
+    protected boolean onInterceptTouchEvent(MotionEvent ev) {
+        AllocationCounter.pause();
+        try {
+            return super.onInterceptTouchEvent(ev);
+        } finally {
+            AllocationCounter.resume();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+package com.chauthai.overscroll;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowChoreographer;
+
+/**
+ * A Choreographer paced by the vsync of a fake display on the Robolectric scheduler. The
+ * stock shadow runs the callbacks as plain messages and reports a frame time which only
+ * counts its calls, so the frame loop of the bounce would neither be paced nor timed like
+ * on a device.
+ * <p>
+ * Here a frame runs every {@link #FRAME_INTERVAL_MS} of uptime, and its frame time is that
+ * uptime in nanoseconds, the clock {@link BounceHarness} sets on {@link FrameClock}. The
+ * callbacks run by type, input, animation and frame callbacks, then traversals, and the ones
+ * posted while a frame runs wait for the next frame, like on a device. The callbacks are kept
+ * in arrays which only grow, so a steady frame loop does not allocate in here.
+ * <p>
+ * An {@link AllocationCounter} can count what the frame callbacks allocate, see
+ * {@link #setFrameCallbackCounter(AllocationCounter)}.
+ */
+@Implements(Choreographer.class)
+public class ShadowVsyncChoreographer extends ShadowChoreographer {
+    static final long FRAME_INTERVAL_MS = 16;
+
+    private static final int CALLBACK_TYPES = 4;
+
+    private final Handler mHandler = new Handler(Looper.myLooper());
+
+    private Object[] mCallbacks = new Object[16];
+    private Object[] mTokens = new Object[16];
+    private int[] mTypes = new int[16];
+    private long[] mDueTimes = new long[16];
+    private int mCount = 0;
+
+    /**
+     * The callbacks of the frame being run, taken from the ones above.
+     */
+    private Object[] mRunning = new Object[16];
+    private int[] mRunningTypes = new int[16];
+
+    private long mFrameTimeNanos = 0;
+    private long mScheduledFrameMs = -1;
+    private boolean mInFrame = false;
+    private int mFrameCount = 0;
+
+    private AllocationCounter mFrameCallbackCounter;
+
+    private final Runnable mFrame = new Runnable() {
+        @Override
+        public void run() {
+            doFrame();
+        }
+    };
+
+    @Implementation
+    @Override
+    protected void postCallbackDelayed(int callbackType, Runnable action, Object token, long delayMillis) {
+        add(callbackType, action, token, delayMillis);
+    }
+
+    @Implementation
+    @Override
+    protected void removeCallbacks(int callbackType, Runnable action, Object token) {
+        remove(callbackType, action, token);
+    }
+
+    @Implementation
+    @Override
+    protected void postFrameCallbackDelayed(Choreographer.FrameCallback callback, long delayMillis) {
+        add(Choreographer.CALLBACK_ANIMATION, callback, null, delayMillis);
+    }
+
+    @Implementation
+    @Override
+    protected void removeFrameCallback(Choreographer.FrameCallback callback) {
+        remove(Choreographer.CALLBACK_ANIMATION, callback, null);
+    }
+
+    @Implementation
+    @Override
+    protected long getFrameTimeNanos() {
+        return mFrameTimeNanos;
+    }
+
+    /**
+     * @return number of frames run so far.
+     */
+    int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Count the allocations of each {@link Choreographer.FrameCallback} run, the frame loop of
+     * the springs, from now on.
+     * @param counter null to stop counting.
+     */
+    void setFrameCallbackCounter(AllocationCounter counter) {
+        mFrameCallbackCounter = counter;
+    }
+
+    /**
+     * @return true if a callback is waiting for a frame.
+     */
+    boolean hasPendingCallbacks() {
+        return mCount > 0;
+    }
+
+    private void add(int type, Object callback, Object token, long delayMillis) {
+        if (callback == null)
+            throw new IllegalArgumentException("null callback");
+
+        if (mCount == mCallbacks.length) {
+            grow();
+        }
+
+        final long dueTime = nextVsync(SystemClock.uptimeMillis() + Math.max(0, delayMillis));
+        mCallbacks[mCount] = callback;
+        mTokens[mCount] = token;
+        mTypes[mCount] = type;
+        mDueTimes[mCount] = dueTime;
+        mCount++;
+
+        if (!mInFrame) {
+            scheduleFrame(dueTime);
+        }
+    }
+
+    private void remove(int type, Object callback, Object token) {
+        int kept = 0;
+
+        for (int i = 0; i < mCount; i++) {
+            final boolean matches = mTypes[i] == type && (callback == null || mCallbacks[i] == callback)
+                    && (token == null || mTokens[i] == token);
+
+            if (!matches) {
+                move(i, kept++);
+            }
+        }
+
+        clear(kept, mCount);
+        mCount = kept;
+    }
+
+    private void doFrame() {
+        final long frameTimeMs = SystemClock.uptimeMillis();
+        mScheduledFrameMs = -1;
+        mFrameTimeNanos = frameTimeMs * 1000000L;
+
+        int running = 0;
+        int kept = 0;
+
+        for (int i = 0; i < mCount; i++) {
+            if (mDueTimes[i] <= frameTimeMs) {
+                mRunning[running] = mCallbacks[i];
+                mRunningTypes[running] = mTypes[i];
+                running++;
+            } else {
+                move(i, kept++);
+            }
+        }
+
+        clear(kept, mCount);
+        mCount = kept;
+
+        mInFrame = true;
+        try {
+            for (int type = 0; type < CALLBACK_TYPES; type++) {
+                for (int i = 0; i < running; i++) {
+                    if (mRunningTypes[i] == type) {
+                        run(mRunning[i]);
+                    }
+                }
+            }
+        } finally {
+            mInFrame = false;
+
+            for (int i = 0; i < running; i++) {
+                mRunning[i] = null;
+            }
+        }
+
+        mFrameCount++;
+
+        for (int i = 0; i < mCount; i++) {
+            scheduleFrame(mDueTimes[i]);
+        }
+    }
+
+    private void run(Object callback) {
+        if (callback instanceof Runnable) {
+            ((Runnable) callback).run();
+            return;
+        }
+
+        final AllocationCounter counter = mFrameCallbackCounter;
+        if (counter == null) {
+            ((Choreographer.FrameCallback) callback).doFrame(mFrameTimeNanos);
+            return;
+        }
+
+        counter.begin();
+        try {
+            ((Choreographer.FrameCallback) callback).doFrame(mFrameTimeNanos);
+        } finally {
+            counter.end();
+        }
+    }
+
+    private void scheduleFrame(long frameTimeMs) {
+        if (mScheduledFrameMs >= 0 && mScheduledFrameMs <= frameTimeMs)
+            return;
+
+        mHandler.removeCallbacks(mFrame);
+        mHandler.postAtTime(mFrame, frameTimeMs);
+        mScheduledFrameMs = frameTimeMs;
+    }
+
+    /**
+     * @return the first vsync after timeMs, a callback posted right on a vsync waits for
+     * the next one.
+     */
+    private static long nextVsync(long timeMs) {
+        return (timeMs / FRAME_INTERVAL_MS + 1) * FRAME_INTERVAL_MS;
+    }
+
+    private void move(int from, int to) {
+        if (from == to)
+            return;
+
+        mCallbacks[to] = mCallbacks[from];
+        mTokens[to] = mTokens[from];
+        mTypes[to] = mTypes[from];
+        mDueTimes[to] = mDueTimes[from];
+    }
+
+    private void clear(int from, int to) {
+        for (int i = from; i < to; i++) {
+            mCallbacks[i] = null;
+            mTokens[i] = null;
+        }
+    }
+
+    private void grow() {
+        final int capacity = mCallbacks.length * 2;
+
+        final Object[] callbacks = new Object[capacity];
+        final Object[] tokens = new Object[capacity];
+        final int[] types = new int[capacity];
+        final long[] dueTimes = new long[capacity];
+        System.arraycopy(mCallbacks, 0, callbacks, 0, mCount);
+        System.arraycopy(mTokens, 0, tokens, 0, mCount);
+        System.arraycopy(mTypes, 0, types, 0, mCount);
+        System.arraycopy(mDueTimes, 0, dueTimes, 0, mCount);
+
+        mCallbacks = callbacks;
+        mTokens = tokens;
+        mTypes = types;
+        mDueTimes = dueTimes;
+        // a callback may be posted while the frame runs
+        final Object[] running = new Object[capacity];
+        final int[] runningTypes = new int[capacity];
+        System.arraycopy(mRunning, 0, running, 0, mRunning.length);
+        System.arraycopy(mRunningTypes, 0, runningTypes, 0, mRunningTypes.length);
+
+        mRunning = running;
+        mRunningTypes = runningTypes;
+    }
+}
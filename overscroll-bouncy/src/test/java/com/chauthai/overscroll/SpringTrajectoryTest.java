@@ -0,0 +1,59 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+
+package com.chauthai.overscroll;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The cache of {@link SpringTrajectory}, shared by the springs of the same tension and friction.
+ */
+public class SpringTrajectoryTest {
+
+    @Test
+    public void sameSpringIsShared() {
+        final SpringTrajectory trajectory = SpringTrajectory.obtain(700, 30);
+
+        assertSame(trajectory, SpringTrajectory.obtain(700, 30));
+        assertNotSame(trajectory, SpringTrajectory.obtain(700, 31));
+    }
+
+    @Test
+    public void leastRecentlyObtainedIsEvicted() {
+        final SpringTrajectory first = SpringTrajectory.obtain(800, 40);
+        final SpringTrajectory second = SpringTrajectory.obtain(800, 41);
+
+        // fill the cache, with the first one obtained again on the way
+        for (int i = 0; i < 10; i++) {
+            SpringTrajectory.obtain(900, 50 + i);
+            assertSame(first, SpringTrajectory.obtain(800, 40));
+        }
+
+        assertNotSame(second, SpringTrajectory.obtain(800, 41));
+    }
+}
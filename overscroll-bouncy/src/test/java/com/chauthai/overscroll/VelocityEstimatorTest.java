@@ -0,0 +1,102 @@
+/**
+ The MIT License (MIT)
+
+ Copyright (c) 2016 Chau Thai
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+
+
+package com.chauthai.overscroll;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Velocities of {@link VelocityEstimator} on scroll callbacks at 60 fps, regular or not.
+ */
+public class VelocityEstimatorTest {
+    private static final long FRAME_NANOS = 16666667L;
+
+    /**
+     * In pixels per ms.
+     */
+    private static final double VELOCITY = 3;
+    private static final double TOLERANCE = 0.01;
+
+    @Test
+    public void regularFrames() {
+        final VelocityEstimator estimator = new VelocityEstimator();
+        scroll(estimator, 0, 10);
+
+        assertEquals(VELOCITY, estimator.getVelocity(), TOLERANCE);
+    }
+
+    @Test
+    public void skippedFramesKeepTheVelocity() {
+        final VelocityEstimator estimator = new VelocityEstimator();
+        scroll(estimator, 0, 10);
+
+        // a janky frame, the next callback comes 4 frames later with the distance of 4 frames
+        scroll(estimator, 10, 1, 4);
+        assertEquals(VELOCITY, estimator.getVelocity(), TOLERANCE);
+
+        scroll(estimator, 14, 3);
+        assertEquals(VELOCITY, estimator.getVelocity(), TOLERANCE);
+    }
+
+    @Test
+    public void skippedFramesOfASeededFling() {
+        final VelocityEstimator estimator = new VelocityEstimator();
+        estimator.reset(VELOCITY);
+
+        scroll(estimator, 0, 1);
+        scroll(estimator, 1, 1, 3);
+        assertEquals(VELOCITY, estimator.getVelocity(), TOLERANCE);
+    }
+
+    @Test
+    public void stoppedMovement() {
+        final VelocityEstimator estimator = new VelocityEstimator();
+        scroll(estimator, 0, 10);
+
+        // the finger rests, then the next sample has not moved
+        estimator.addPosition(20 * FRAME_NANOS, 10 * VELOCITY * FRAME_NANOS / 1000000.0);
+        assertEquals(0, estimator.getVelocity(), TOLERANCE);
+    }
+
+    /**
+     * Scroll callbacks of the movement at {@link #VELOCITY}, one per frame after the frame of
+     * the previous callback.
+     */
+    private static void scroll(VelocityEstimator estimator, int firstFrame, int count) {
+        scroll(estimator, firstFrame, count, 1);
+    }
+
+    /**
+     * @param frames frames covered by each callback, more than 1 for skipped frames.
+     */
+    private static void scroll(VelocityEstimator estimator, int firstFrame, int count, int frames) {
+        for (int i = 0; i < count; i++) {
+            final long time = (firstFrame + (i + 1) * frames) * FRAME_NANOS;
+            estimator.addDelta(time, VELOCITY * frames * FRAME_NANOS / 1000000.0);
+        }
+    }
+}